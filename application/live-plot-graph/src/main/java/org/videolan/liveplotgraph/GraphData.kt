@@ -0,0 +1,90 @@
+/*
+ * ************************************************************************
+ *  GraphData.kt
+ * *************************************************************************
+ * Copyright © 2022 VLC authors and VideoLAN
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston MA 02110-1301, USA.
+ * **************************************************************************
+ *
+ *
+ */
+
+package org.videolan.liveplotgraph
+
+/**
+ * Fixed capacity ring buffer of graph points, sorted by key.
+ * When full, adding a point drops the oldest one.
+ */
+class GraphData(val capacity: Int) {
+    private val keys = LongArray(capacity)
+    private val values = FloatArray(capacity)
+    private var start = 0
+
+    var size = 0
+        private set
+
+    init {
+        require(capacity > 0) { "capacity must be positive" }
+    }
+
+    fun isEmpty() = size == 0
+
+    fun keyAt(index: Int) = keys[physicalIndex(index)]
+
+    fun valueAt(index: Int) = values[physicalIndex(index)]
+
+    /**
+     * Add a point. Points are expected in increasing key order, an existing key is updated.
+     */
+    fun put(key: Long, value: Float) {
+        var position = size
+        while (position > 0 && keyAt(position - 1) > key) --position
+        if (position > 0 && keyAt(position - 1) == key) {
+            values[physicalIndex(position - 1)] = value
+            return
+        }
+        if (size == capacity) {
+            // Older than all the kept points
+            if (position == 0) return
+            start = (start + 1) % capacity
+            --size
+            --position
+        }
+        for (i in size downTo position + 1) {
+            keys[physicalIndex(i)] = keyAt(i - 1)
+            values[physicalIndex(i)] = valueAt(i - 1)
+        }
+        keys[physicalIndex(position)] = key
+        values[physicalIndex(position)] = value
+        ++size
+    }
+
+    fun clear() {
+        start = 0
+        size = 0
+    }
+
+    /**
+     * @return the highest value, 0 if empty
+     */
+    fun maxValue(): Float {
+        if (size == 0) return 0f
+        var max = valueAt(0)
+        for (i in 1 until size) max = maxOf(max, valueAt(i))
+        return max
+    }
+
+    private fun physicalIndex(index: Int) = (start + index) % capacity
+}
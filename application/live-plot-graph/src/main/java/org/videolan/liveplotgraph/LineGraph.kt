@@ -27,7 +27,11 @@ package org.videolan.liveplotgraph
 import android.graphics.Paint
 import org.videolan.tools.dp
 
-data class LineGraph(val index: Int, val title: String, val color: Int, val data: HashMap<Long, Float> = HashMap()) {
+const val DEFAULT_GRAPH_CAPACITY = 30
+
+data class LineGraph(val index: Int, val title: String, val color: Int, val capacity: Int = DEFAULT_GRAPH_CAPACITY) {
+    val data = GraphData(capacity)
+
     val paint: Paint by lazy {
         val p = Paint()
         p.color = color
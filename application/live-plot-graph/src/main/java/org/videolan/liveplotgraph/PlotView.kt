@@ -43,10 +43,11 @@ class PlotView : FrameLayout {
         p
     }
     val data = ArrayList<LineGraph>()
-    private val maxsY = ArrayList<Float>()
-    private val maxsX = ArrayList<Long>()
-    private val minsX = ArrayList<Long>()
     private var color: Int = 0xFFFFFF
+    private val maxYLabel = ValueLabel()
+    private val centerLabel = ValueLabel()
+    /* Timestamp labels, indexed by the number of seconds before the latest point */
+    private val timeLabels = ArrayList<Label>()
     private var listeners = ArrayList<PlotViewDataChangeListener>()
 
     constructor(context: Context) : super(context) {
@@ -79,14 +80,13 @@ class PlotView : FrameLayout {
     fun addData(index: Int, value: Pair<Long, Float>) {
         data.forEach { lineGraph ->
             if (lineGraph.index == index) {
-                lineGraph.data[value.first] = value.second
-                if (lineGraph.data.size > 30) {
-                    lineGraph.data.remove(lineGraph.data.toSortedMap().firstKey())
-                }
+                lineGraph.data.put(value.first, value.second)
                 invalidate()
+                if (listeners.isEmpty()) return
                 val listenerValue = ArrayList<Pair<LineGraph, String>>(data.size)
                 data.forEach { lineGraph ->
-                    listenerValue.add(Pair(lineGraph, "${String.format("%.0f", lineGraph.data[lineGraph.data.keys.maxOrNull()])} kb/s"))
+                    val lastValue = if (lineGraph.data.isEmpty()) null else lineGraph.data.valueAt(lineGraph.data.size - 1)
+                    listenerValue.add(Pair(lineGraph, "${String.format("%.0f", lastValue)} kb/s"))
                 }
                 listeners.forEach { it.onDataChanged(listenerValue) }
             }
@@ -104,24 +104,19 @@ class PlotView : FrameLayout {
     override fun onDraw(canvas: Canvas?) {
         super.onDraw(canvas)
 
-        maxsY.clear()
-        maxsX.clear()
-        minsX.clear()
-
-        data.forEach {
-            maxsY.add(it.data.maxByOrNull { it.value }?.value ?: 0f)
-        }
-        val maxY = maxsY.maxOrNull() ?: 0f
-
-        data.forEach {
-            maxsX.add(it.data.maxByOrNull { it.key }?.key ?: 0L)
+        // No iterator nor boxing here, this is called for each frame
+        var maxY = 0f
+        var maxX = 0L
+        var minX = 0L
+        for (i in data.indices) {
+            val lineData = data[i].data
+            val lineMaxY = lineData.maxValue()
+            val lineMaxX = if (lineData.isEmpty()) 0L else lineData.keyAt(lineData.size - 1)
+            val lineMinX = if (lineData.isEmpty()) 0L else lineData.keyAt(0)
+            if (i == 0 || lineMaxY > maxY) maxY = lineMaxY
+            if (i == 0 || lineMaxX > maxX) maxX = lineMaxX
+            if (i == 0 || lineMinX > minX) minX = lineMinX
         }
-        val maxX = maxsX.maxOrNull() ?: 0L
-
-        data.forEach {
-            minsX.add(it.data.minByOrNull { it.key }?.key ?: 0L)
-        }
-        val minX = minsX.maxOrNull() ?: 0L
 
         drawLines(maxY, minX, maxX, canvas)
         drawGrid(canvas, maxY, minX, maxX)
@@ -131,48 +126,56 @@ class PlotView : FrameLayout {
         canvas?.let {
             if (maxY <= 0F) return
             //            it.drawText("0", 10F, it.height.toFloat() - 2.dp, textPaint)
-            it.drawText("${String.format("%.0f", maxY)} kb/s", 10F, 10.dp.toFloat(), textPaint)
+            it.drawText(maxYLabel.get(maxY), 10F, 10.dp.toFloat(), textPaint)
 
             var center = maxY / 2
             center = getRoundedByUnit(center)
-            if (BuildConfig.DEBUG) Log.d(this::class.java.simpleName, "Center: $center")
             val centerCoord = measuredHeight * ((maxY - center) / maxY)
             it.drawLine(0f, centerCoord, measuredWidth.toFloat(), centerCoord, textPaint)
-            it.drawText("${String.format("%.0f", center)} kb/s", 10F, centerCoord - 2.dp, textPaint)
+            it.drawText(centerLabel.get(center), 10F, centerCoord - 2.dp, textPaint)
 
             //timestamps
 
             var index = maxX - 1000
-            if (BuildConfig.DEBUG) Log.d(this::class.java.simpleName, "FirstIndex: $index")
+            var seconds = 1
             while (index > minX) {
                 val xCoord = (measuredWidth * ((index - minX).toDouble() / (maxX - minX).toDouble())).toFloat()
                 it.drawLine(xCoord, 0F, xCoord, measuredHeight.toFloat() - 12.dp, textPaint)
-                val formattedText = "${String.format("%.0f", getRoundedByUnit((index - maxX).toFloat()) / 1000)}s"
-                it.drawText(formattedText, xCoord - (textPaint.measureText(formattedText) / 2), measuredHeight.toFloat(), textPaint)
+                val label = getTimeLabel(seconds)
+                it.drawText(label.text, xCoord - (label.width / 2), measuredHeight.toFloat(), textPaint)
                 index -= 1000
+                ++seconds
             }
 
         }
     }
 
+    private fun getTimeLabel(seconds: Int): Label {
+        while (timeLabels.size < seconds) {
+            val text = "-${timeLabels.size + 1}s"
+            timeLabels.add(Label(text, textPaint.measureText(text)))
+        }
+        return timeLabels[seconds - 1]
+    }
+
     private fun getRoundedByUnit(number: Float): Float {
         val lengthX = log10(number.toDouble()).toInt()
         return (round(number / (10.0.pow(lengthX.toDouble()))) * (10.0.pow(lengthX.toDouble()))).toFloat()
     }
 
     private fun drawLines(maxY: Float, minX: Long, maxX: Long, canvas: Canvas?) {
-        data.forEach { line ->
-            var initialPoint: Pair<Float, Float>? = null
-            line.data.toSortedMap().forEach { point ->
-                if (initialPoint == null) {
-                    initialPoint = getCoordinates(point, maxY, minX, maxX, measuredWidth, measuredHeight)
-                } else {
-                    val currentPoint = getCoordinates(point, maxY, minX, maxX, measuredWidth, measuredHeight)
-                    currentPoint.let {
-                        canvas?.drawLine(initialPoint!!.first, initialPoint!!.second, it.first, it.second, line.paint)
-                        initialPoint = it
-                    }
-                }
+        if (canvas == null) return
+        for (line in data.indices) {
+            val lineData = data[line].data
+            val paint = data[line].paint
+            var previousX = 0f
+            var previousY = 0f
+            for (i in 0 until lineData.size) {
+                val x = getX(lineData.keyAt(i), minX, maxX, measuredWidth)
+                val y = getY(lineData.valueAt(i), maxY, measuredHeight)
+                if (i > 0) canvas.drawLine(previousX, previousY, x, y, paint)
+                previousX = x
+                previousY = y
             }
         }
     }
@@ -229,7 +232,8 @@ class PlotView : FrameLayout {
 //
 //    }
 
-    private fun getCoordinates(point: Map.Entry<Long, Float>, maxY: Float, minX: Long, maxX: Long, measuredWidth: Int, measuredHeight: Int): Pair<Float, Float> = Pair((measuredWidth * ((point.key - minX).toDouble() / (maxX - minX).toDouble())).toFloat(), measuredHeight * ((maxY - point.value) / maxY))
+    private fun getX(key: Long, minX: Long, maxX: Long, measuredWidth: Int) = (measuredWidth * ((key - minX).toDouble() / (maxX - minX).toDouble())).toFloat()
+    private fun getY(value: Float, maxY: Float, measuredHeight: Int) = measuredHeight * ((maxY - value) / maxY)
     fun clear() {
         data.forEach {
             it.data.clear()
@@ -243,6 +247,24 @@ class PlotView : FrameLayout {
     }
 }
 
+private class Label(val text: String, val width: Float)
+
+/**
+ * Formatted kb/s value, only formatted again when the value changes
+ */
+private class ValueLabel {
+    private var value = Float.NaN
+    private var text = ""
+
+    fun get(value: Float): String {
+        if (value != this.value) {
+            this.value = value
+            text = "${String.format("%.0f", value)} kb/s"
+        }
+        return text
+    }
+}
+
 data class GraphPoint(val x: Float, val y: Float) {
     var dx: Float = 0F
     var dy: Float = 0F
@@ -0,0 +1,48 @@
+package org.videolan.liveplotgraph
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class GraphDataTest {
+
+    private fun GraphData.keys() = List(size) { keyAt(it) }
+
+    @Test
+    fun whenFull_oldestPointsShouldBeDropped() {
+        val data = GraphData(3)
+        for (i in 1L..5L) data.put(i * 1000, i.toFloat())
+        assertEquals(listOf(3000L, 4000L, 5000L), data.keys())
+        assertEquals(5f, data.maxValue())
+    }
+
+    @Test
+    fun withExistingKey_valueShouldBeUpdated() {
+        val data = GraphData(3)
+        data.put(1000, 1f)
+        data.put(1000, 2f)
+        assertEquals(1, data.size)
+        assertEquals(2f, data.valueAt(0))
+    }
+
+    @Test
+    fun withOutOfOrderPoint_pointsShouldStaySorted() {
+        val data = GraphData(4)
+        data.put(1000, 1f)
+        data.put(3000, 3f)
+        data.put(2000, 2f)
+        assertEquals(listOf(1000L, 2000L, 3000L), data.keys())
+        data.put(4000, 4f)
+        data.put(500, 0f)
+        assertEquals(listOf(1000L, 2000L, 3000L, 4000L), data.keys())
+    }
+
+    @Test
+    fun whenCleared_dataShouldBeEmpty() {
+        val data = GraphData(2)
+        data.put(1000, 1f)
+        data.clear()
+        assertTrue(data.isEmpty())
+        assertEquals(0f, data.maxValue())
+    }
+}
@@ -134,7 +134,7 @@ object TvUtil {
         when (item) {
             is MediaWrapper -> when (item.type) {
                 MediaWrapper.TYPE_AUDIO -> {
-                    val list = (model?.dataset?.getList() as? List<MediaWrapper>)?.filter { it.type != MediaWrapper.TYPE_DIR }
+                    val list = (model?.dataset?.list as? List<MediaWrapper>)?.filter { it.type != MediaWrapper.TYPE_DIR }
                         ?: return
                     val position = list.getposition(item)
                     playAudioList(activity, list, position)
@@ -154,7 +154,7 @@ object TvUtil {
                 }
                 else -> {
                     model?.run {
-                        val list = (dataset.getList() as List<MediaWrapper>).filter { it.type != MediaWrapper.TYPE_DIR }
+                        val list = (dataset.list as List<MediaWrapper>).filter { it.type != MediaWrapper.TYPE_DIR }
                         val position = list.getposition(item)
                         MediaUtils.openList(activity, list, position)
                     } ?: MediaUtils.openMedia(activity, item)
@@ -183,7 +183,7 @@ object TvUtil {
         when (item) {
             is MediaWrapper -> when (item.type) {
                 MediaWrapper.TYPE_AUDIO -> {
-                    val list = (model.dataset.getList() as List<MediaWrapper>).filter { it.type != MediaWrapper.TYPE_DIR }
+                    val list = (model.dataset.list as List<MediaWrapper>).filter { it.type != MediaWrapper.TYPE_DIR }
                     val position = list.getposition(item)
                     playAudioList(activity, list, position)
                 }
@@ -202,7 +202,7 @@ object TvUtil {
                 }
                 else -> {
                     model.run {
-                        val list = (dataset.getList() as List<MediaWrapper>).filter { it.type != MediaWrapper.TYPE_DIR }
+                        val list = (dataset.list as List<MediaWrapper>).filter { it.type != MediaWrapper.TYPE_DIR }
                         val position = list.getposition(item)
                         MediaUtils.openList(activity, list, position)
                     }
@@ -58,7 +58,7 @@ class MediaListActivity : BaseTvActivity(), ITVEventsHandler {
 
         binding.mediaList.layoutManager = linearLayoutManager
         binding.mediaList.adapter = adapter
-        adapter.update(item.tracks.toList())
+        adapter.update(item.tracks.toList(), copy = false)
 
         binding.mediaList.addItemDecoration(dividerItemDecoration)
 
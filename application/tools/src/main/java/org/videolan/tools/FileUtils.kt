@@ -12,10 +12,39 @@ import java.nio.channels.FileChannel
  * Size of the chunks that will be hashed in bytes (64 KB)
  */
 private const val HASH_CHUNK_SIZE = 64 * 1024
+
+/**
+ * Number of file hashes kept in memory
+ */
+private const val HASH_CACHE_SIZE = 256
+
 object FileUtils {
+
+    private class CachedHash(val size: Long, val lastModified: Long, val hash: String)
+
+    private val hashCache = object : LinkedHashMap<String, CachedHash>(HASH_CACHE_SIZE, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, CachedHash>?) = size > HASH_CACHE_SIZE
+    }
+
+    /**
+     * Compute the OpenSubtitles hash of a file.
+     * Hashes are cached by path and only computed again if the file size or modification date changed.
+     */
     @WorkerThread
     fun computeHash(file: File): String? {
+        val path = file.absolutePath
         val size = file.length()
+        val lastModified = file.lastModified()
+        synchronized(hashCache) {
+            hashCache[path]?.let { if (it.size == size && it.lastModified == lastModified) return it.hash }
+        }
+        return computeHash(file, size)?.also { hash ->
+            synchronized(hashCache) { hashCache[path] = CachedHash(size, lastModified, hash) }
+        }
+    }
+
+    @WorkerThread
+    private fun computeHash(file: File, size: Long): String? {
         val chunkSizeForFile = HASH_CHUNK_SIZE.toLong().coerceAtMost(size)
         val head: Long
         val tail: Long
@@ -0,0 +1,114 @@
+/*
+ * ************************************************************************
+ *  LogBuffer.kt
+ * *************************************************************************
+ * Copyright © 2022 VLC authors and VideoLAN
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston MA 02110-1301, USA.
+ * **************************************************************************
+ *
+ *
+ */
+
+package org.videolan.tools
+
+import java.io.IOException
+import java.io.OutputStream
+import kotlin.math.min
+
+private const val LINE_SEPARATOR = '\n'.code.toByte()
+
+/**
+ * Ring buffer of log lines, bounded by a byte budget instead of a line count.
+ * Lines are stored as UTF-8 in a single array allocated once, the oldest lines are dropped when it is full.
+ *
+ * @param capacity the byte budget
+ */
+class LogBuffer(private val capacity: Int) {
+    private val buffer = ByteArray(capacity)
+    private var head = 0
+
+    /**
+     * Size of the stored lines in bytes, separators included
+     */
+    var size = 0
+        private set
+
+    init {
+        require(capacity > 1) { "capacity is too small" }
+    }
+
+    /**
+     * Append a line. A line bigger than the whole buffer is truncated to its end,
+     * on a character boundary.
+     */
+    @Synchronized
+    fun add(line: String) {
+        val bytes = line.toByteArray()
+        var offset = bytes.size - min(bytes.size, capacity - 1)
+        // Skip the continuation bytes of a truncated multi-byte UTF-8 character
+        while (offset < bytes.size && (bytes[offset].toInt() and 0xC0) == 0x80) ++offset
+        val length = bytes.size - offset
+        while (capacity - size < length + 1) dropFirstLine()
+        var tail = (head + size) % capacity
+        while (offset < bytes.size) {
+            val count = min(bytes.size - offset, capacity - tail)
+            System.arraycopy(bytes, offset, buffer, tail, count)
+            offset += count
+            tail = (tail + count) % capacity
+        }
+        buffer[tail] = LINE_SEPARATOR
+        size += length + 1
+    }
+
+    @Synchronized
+    fun clear() {
+        head = 0
+        size = 0
+    }
+
+    /**
+     * Write the stored lines, each followed by a line feed, without intermediate copy
+     */
+    @Synchronized
+    @Throws(IOException::class)
+    fun writeTo(output: OutputStream) {
+        val firstPart = min(size, capacity - head)
+        output.write(buffer, head, firstPart)
+        if (size > firstPart) output.write(buffer, 0, size - firstPart)
+    }
+
+    /**
+     * @return a copy of the stored lines
+     */
+    @Synchronized
+    fun getLines(): List<String> {
+        if (size == 0) return emptyList()
+        val bytes = ByteArray(size)
+        val firstPart = min(size, capacity - head)
+        System.arraycopy(buffer, head, bytes, 0, firstPart)
+        System.arraycopy(buffer, 0, bytes, firstPart, size - firstPart)
+        // Drop the trailing separator so that no empty line is added
+        return String(bytes, 0, size - 1).split('\n')
+    }
+
+    private fun dropFirstLine() {
+        while (size > 0) {
+            val byte = buffer[head]
+            head = (head + 1) % capacity
+            --size
+            if (byte == LINE_SEPARATOR) break
+        }
+    }
+}
@@ -119,6 +119,7 @@ class Logcat : Runnable {
 
     companion object {
         val TAG = "VLC/UiTools/Logcat"
+        private const val COPY_BUFFER_SIZE = 64 * 1024
 
         /**
          * Writes the current app logcat to a file.
@@ -132,31 +133,22 @@ class Logcat : Runnable {
 
             val process = Runtime.getRuntime().exec(args)
 
-            val input = InputStreamReader(process.inputStream)
+            val input = process.inputStream
 
             val fileStream: FileOutputStream
             try {
                 fileStream = FileOutputStream(filename)
             } catch (e: FileNotFoundException) {
+                CloseableUtils.close(input)
                 return
             }
 
-            val output = OutputStreamWriter(fileStream)
-            val br = BufferedReader(input)
-            val bw = BufferedWriter(output)
-
+            // logcat output is already line separated, stream it as is
             try {
-                var line = br.readLine()
-                while (line != null) {
-                    bw.write(line)
-                    bw.newLine()
-                    line = br.readLine()
-                }
+                input.copyTo(fileStream, COPY_BUFFER_SIZE)
             } catch (e: Exception) {
             } finally {
-                CloseableUtils.close(bw)
-                CloseableUtils.close(output)
-                CloseableUtils.close(br)
+                CloseableUtils.close(fileStream)
                 CloseableUtils.close(input)
             }
         }
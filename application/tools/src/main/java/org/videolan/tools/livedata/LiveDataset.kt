@@ -44,9 +44,20 @@ class LiveDataset<T> : MutableLiveData<MutableList<T>>() {
 
     fun get(position: Int) = internalList[position]
 
+    /**
+     * @return a snapshot of the current items, safe to keep or to iterate off the main thread
+     */
     fun getList() = internalList.toList()
 
-    val size = internalList.size
+    /**
+     * Read-only view of the current items, without copy.
+     * It reflects the next mutations, so it must be consumed right away on the main thread.
+     */
+    val list: List<T>
+        get() = internalList
+
+    val size
+        get() = internalList.size
 
     fun clear() {
         value = internalList.apply { clear() }
@@ -56,13 +67,18 @@ class LiveDataset<T> : MutableLiveData<MutableList<T>>() {
         value = internalList.apply { add(item) }
     }
 
+    /**
+     * Insert [item] before the first item not lower than it, the list being sorted with [comparator]
+     */
     fun add(item: T, comparator: Comparator<T>) {
-        var position = 0
-        for (media in internalList) {
-            if (comparator.compare(item, media) > 0) position++
-            else break
+        var low = 0
+        var high = internalList.size
+        while (low < high) {
+            val mid = (low + high) ushr 1
+            if (comparator.compare(item, internalList[mid]) > 0) low = mid + 1
+            else high = mid
         }
-        value = internalList.apply { this.add(position, item) }
+        value = internalList.apply { this.add(low, item) }
     }
 
     fun add(position: Int, item: T) {
@@ -70,11 +86,25 @@ class LiveDataset<T> : MutableLiveData<MutableList<T>>() {
     }
 
     fun add(items: List<T>) {
-        value = internalList.apply { addAll(items.filter { !this.contains(it) }) }
+        val newItems = if (internalList.isEmpty()) items else items.filter { !internalList.contains(it) }
+        if (newItems.isNotEmpty()) value = internalList.apply { addAll(newItems) }
+    }
+
+    /**
+     * Add the [items] which are not already in the list, without comparing each pair of items.
+     * Two items are the same if they share any of the non null keys returned by [keys]. Keys are
+     * hashed, so they must be consistent with the items equality.
+     */
+    fun add(items: List<T>, keys: (T) -> Array<out Any?>) {
+        if (internalList.isEmpty()) return add(items)
+        val knownKeys = HashSet<Any>(internalList.size + items.size)
+        for (item in internalList) for (key in keys(item)) if (key != null) knownKeys.add(key)
+        val newItems = items.filter { item -> keys(item).none { it != null && knownKeys.contains(it) } }
+        if (newItems.isNotEmpty()) value = internalList.apply { addAll(newItems) }
     }
 
     fun remove(item: T) {
-        value = internalList.apply { remove(item) }
+        if (internalList.remove(item)) value = internalList
     }
 
     fun remove(position: Int) {
@@ -0,0 +1,57 @@
+package org.videolan.tools
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Test
+import java.io.File
+import kotlin.random.Random
+
+class FileUtilsTest {
+
+    private fun createFile(content: ByteArray) = File.createTempFile("video", ".mkv").apply {
+        deleteOnExit()
+        writeBytes(content)
+        setLastModified(LAST_MODIFIED)
+    }
+
+    @Test
+    fun withSameSizeAndDate_cachedHashShouldBeReturned() {
+        val file = createFile(Random(42).nextBytes(200 * 1024))
+        val hash = FileUtils.computeHash(file)
+        assertNotNull(hash)
+        // Different content, but the cache can't tell
+        file.writeBytes(Random(43).nextBytes(200 * 1024))
+        file.setLastModified(LAST_MODIFIED)
+        assertEquals(hash, FileUtils.computeHash(file))
+    }
+
+    @Test
+    fun withOtherSize_hashShouldBeComputedAgain() {
+        val file = createFile(Random(42).nextBytes(200 * 1024))
+        val hash = FileUtils.computeHash(file)
+        file.appendBytes(Random(43).nextBytes(1024))
+        file.setLastModified(LAST_MODIFIED)
+        assertNotEquals(hash, FileUtils.computeHash(file))
+    }
+
+    @Test
+    fun withOtherDate_hashShouldBeComputedAgain() {
+        val file = createFile(Random(42).nextBytes(200 * 1024))
+        val hash = FileUtils.computeHash(file)
+        file.writeBytes(Random(43).nextBytes(200 * 1024))
+        file.setLastModified(LAST_MODIFIED + 10_000L)
+        assertNotEquals(hash, FileUtils.computeHash(file))
+    }
+
+    @Test
+    fun withSmallFile_hashShouldIncludeTheSize() {
+        val file = File.createTempFile("video", ".mkv").apply { deleteOnExit() }
+        file.writeBytes(ByteArray(16))
+        assertEquals("%016x".format(16L), FileUtils.computeHash(file))
+    }
+
+    companion object {
+        private const val LAST_MODIFIED = 1_600_000_000_000L
+    }
+}
@@ -0,0 +1,70 @@
+package org.videolan.tools
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.io.ByteArrayOutputStream
+
+class LogBufferTest {
+
+    @Test
+    fun withinBudget_allLinesShouldBeKept() {
+        val buffer = LogBuffer(64)
+        buffer.add("first")
+        buffer.add("second")
+        assertEquals(listOf("first", "second"), buffer.getLines())
+        assertEquals(13, buffer.size)
+    }
+
+    @Test
+    fun overBudget_oldestLinesShouldBeDropped() {
+        val buffer = LogBuffer(16)
+        for (i in 0 until 10) buffer.add("line $i")
+        assertEquals(listOf("line 8", "line 9"), buffer.getLines())
+    }
+
+    @Test
+    fun whenWrapping_writtenContentShouldBeInOrder() {
+        val buffer = LogBuffer(16)
+        for (i in 0 until 5) buffer.add("l$i")
+        buffer.add("wrapped")
+        val output = ByteArrayOutputStream()
+        buffer.writeTo(output)
+        assertEquals("l3\nl4\nwrapped\n", output.toString())
+    }
+
+    @Test
+    fun withLineBiggerThanBudget_lineShouldBeTruncated() {
+        val buffer = LogBuffer(8)
+        buffer.add("0123456789")
+        assertEquals(listOf("3456789"), buffer.getLines())
+    }
+
+    @Test
+    fun withMultiByteLineBiggerThanBudget_lineShouldBeTruncatedOnACharacter() {
+        val buffer = LogBuffer(8)
+        // Five 2-byte characters, the first 7 bytes kept would start in the middle of one
+        buffer.add("ééééé")
+        assertEquals(listOf("ééé"), buffer.getLines())
+        assertEquals(7, buffer.size)
+    }
+
+    @Test
+    fun whenTruncatedLineWraps_contentShouldBeInOrder() {
+        val buffer = LogBuffer(12)
+        buffer.add("abcdefgh")
+        // Written from the middle of the buffer, after dropping the first line
+        buffer.add("€€€€€")
+        assertEquals(listOf("€€€"), buffer.getLines())
+        val output = ByteArrayOutputStream()
+        buffer.writeTo(output)
+        assertEquals("€€€\n", output.toString("UTF-8"))
+    }
+
+    @Test
+    fun whenCleared_bufferShouldBeEmpty() {
+        val buffer = LogBuffer(8)
+        buffer.add("line")
+        buffer.clear()
+        assertEquals(emptyList<String>(), buffer.getLines())
+    }
+}
@@ -40,6 +40,7 @@ import org.videolan.medialibrary.MLServiceLocator
 import org.videolan.medialibrary.interfaces.Medialibrary
 import org.videolan.medialibrary.interfaces.media.MediaWrapper
 import org.videolan.medialibrary.media.MediaLibraryItem
+import org.videolan.resources.MEDIALIBRARY_PAGE_SIZE
 import org.videolan.resources.VLCInstance
 import org.videolan.resources.util.getFromMl
 import org.videolan.vlc.gui.helpers.AudioUtil
@@ -227,7 +228,7 @@ class ArtworkProvider : ContentProvider() {
     private fun getPlayAllImage(ctx: Context, type: String, id: Long, shuffle: Boolean): ParcelFileDescriptor {
         val bitmap = runBlocking(Dispatchers.IO) {
             val tracks = when (type) {
-                GENRE -> ctx.getFromMl { getGenre(id)?.albums?.flatMap { it.tracks.toList() } }
+                GENRE -> ctx.getFromMl { getGenre(id)?.getPagedTracks(Medialibrary.SORT_ALBUM, false, true, MEDIALIBRARY_PAGE_SIZE, 0)?.toList() }
                 ARTIST -> ctx.getFromMl { getArtist(id)?.tracks?.toList() }
                 PLAYLIST -> ctx.getFromMl { getPlaylist(id, true)?.tracks?.toList() }
                 else -> null
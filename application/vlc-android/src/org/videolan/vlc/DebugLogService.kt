@@ -36,18 +36,18 @@ import org.videolan.resources.AndroidDevices
 import org.videolan.resources.AppContextProvider
 import org.videolan.resources.util.launchForeground
 import org.videolan.tools.CloseableUtils
+import org.videolan.tools.LogBuffer
 import org.videolan.tools.Logcat
 import org.videolan.tools.getContextWithLocale
 import org.videolan.vlc.gui.DebugLogActivity
 import org.videolan.vlc.gui.helpers.NotificationHelper
 import org.videolan.vlc.gui.preferences.search.PreferenceParser
 import java.io.*
-import java.util.*
 
 class DebugLogService : Service(), Logcat.Callback, Runnable {
 
     private var logcat: Logcat? = null
-    private val logList = LinkedList<String>()
+    private val logBuffer = LogBuffer(MAX_LOG_SIZE)
     private var saveThread: Thread? = null
     private val callbacks = RemoteCallbackList<IDebugLogServiceCallback>()
     private val binder = DebugLogServiceStub(this)
@@ -100,7 +100,7 @@ class DebugLogService : Service(), Logcat.Callback, Runnable {
                 when (what) {
                     MSG_STOPPED -> cb.onStopped()
                     MSG_STARTED -> {
-                        cb.onStarted(logList)
+                        cb.onStarted(logBuffer.getLines())
                     }
                     MSG_ONLOG -> cb.onLog(str)
                     MSG_SAVED -> cb.onSaved(str != null, str)
@@ -114,9 +114,7 @@ class DebugLogService : Service(), Logcat.Callback, Runnable {
 
     @Synchronized
     override fun onLog(log: String) {
-        if (logList.size > MAX_LINES)
-            logList.removeAt(0)
-        logList.add(log)
+        logBuffer.add(log)
         sendMessage(MSG_ONLOG, log)
     }
 
@@ -160,7 +158,7 @@ class DebugLogService : Service(), Logcat.Callback, Runnable {
 
     @Synchronized
     fun clear() {
-        logList.clear()
+        logBuffer.clear()
     }
 
     /* saveThread */
@@ -192,10 +190,9 @@ class DebugLogService : Service(), Logcat.Callback, Runnable {
                     bw.write(Log.getStackTraceString(e))
                 }
                 bw.write("____________________________\r\n")
-                for (line in logList) {
-                    bw.write(line)
-                    bw.newLine()
-                }
+                bw.flush()
+                // The log lines are already encoded, stream them directly to the file
+                logBuffer.writeTo(fos)
             }
         } catch (e: FileNotFoundException) {
 
@@ -388,6 +385,6 @@ class DebugLogService : Service(), Logcat.Callback, Runnable {
         private const val MSG_ONLOG = 2
         private const val MSG_SAVED = 3
 
-        private const val MAX_LINES = 20000
+        private const val MAX_LOG_SIZE = 4 * 1024 * 1024
     }
 }
\ No newline at end of file
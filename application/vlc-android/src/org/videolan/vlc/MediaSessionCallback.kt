@@ -2,6 +2,7 @@ package org.videolan.vlc
 
 import android.annotation.SuppressLint
 import android.content.ContentUris
+import android.content.Context
 import android.content.Intent
 import android.net.Uri
 import android.os.Bundle
@@ -12,8 +13,10 @@ import android.view.KeyEvent
 import androidx.core.net.toUri
 import androidx.lifecycle.lifecycleScope
 import kotlinx.coroutines.*
+import org.videolan.libvlc.MediaPlayer
 import org.videolan.medialibrary.Tools
 import org.videolan.medialibrary.interfaces.Medialibrary
+import org.videolan.medialibrary.interfaces.media.Genre
 import org.videolan.medialibrary.interfaces.media.MediaWrapper
 import org.videolan.resources.*
 import org.videolan.resources.util.getFromMl
@@ -24,6 +27,7 @@ import org.videolan.tools.retrieveParent
 import org.videolan.vlc.extensions.ExtensionsManager
 import org.videolan.vlc.gui.helpers.MediaComparators
 import org.videolan.vlc.media.MediaSessionBrowser
+import org.videolan.vlc.util.EmptyPBSCallback
 import org.videolan.vlc.util.VoiceSearchParams
 import org.videolan.vlc.util.awaitMedialibraryStarted
 import java.security.SecureRandom
@@ -34,9 +38,12 @@ import kotlin.math.min
 @Suppress("unused")
 private const val TAG = "VLC/MediaSessionCallback"
 private const val ONE_SECOND = 1000L
+private const val SHUFFLE_SLICE_SIZE = 20
+private const val QUEUE_PREFETCH_THRESHOLD = 5
 
 internal class MediaSessionCallback(private val playbackService: PlaybackService) : MediaSessionCompat.Callback() {
     private var prevActionSeek = false
+    private var queueFeeder: QueueFeeder? = null
 
     override fun onPlay() {
         if (playbackService.hasMedia()) playbackService.play()
@@ -152,11 +159,14 @@ internal class MediaSessionCallback(private val playbackService: PlaybackService
                         MediaSessionBrowser.ID_NO_MEDIA -> playbackService.displayPlaybackError(R.string.search_no_result)
                         MediaSessionBrowser.ID_NO_PLAYLIST -> playbackService.displayPlaybackError(R.string.noplaylist)
                         MediaSessionBrowser.ID_SHUFFLE_ALL -> {
-                            val tracks = context.getFromMl { audio }
+                            queueFeeder?.detach()
+                            val count = context.getFromMl { audioCount }
+                            val slices = ArrayDeque((0 until (count + SHUFFLE_SLICE_SIZE - 1) / SHUFFLE_SLICE_SIZE).shuffled())
+                            val tracks = context.getShuffleAllPage(slices)
                             if (tracks.isNotEmpty() && isActive) {
-                                tracks.sortWith(MediaComparators.ANDROID_AUTO)
-                                loadMedia(tracks.toList(), SecureRandom().nextInt(min(tracks.size, MEDIALIBRARY_PAGE_SIZE)))
+                                loadMedia(tracks, SecureRandom().nextInt(min(tracks.size, MEDIALIBRARY_PAGE_SIZE)))?.join()
                                 if (!playbackService.isShuffling) playbackService.shuffle()
+                                if (slices.isNotEmpty()) queueFeeder = QueueFeeder { context.getShuffleAllPage(slices) }
                             } else {
                                 playbackService.displayPlaybackError(R.string.search_no_result)
                             }
@@ -209,8 +219,18 @@ internal class MediaSessionCallback(private val playbackService: PlaybackService
                                     if (isActive) tracks?.let { loadMedia(it.toList(), allowRandom = true) }
                                 }
                                 MediaSessionBrowser.ID_GENRE -> {
-                                    val tracks = context.getFromMl { getGenre(id)?.albums?.flatMap { it.tracks.toList() } }
-                                    if (isActive) tracks?.let { loadMedia(it.toList(), allowRandom = true) }
+                                    queueFeeder?.detach()
+                                    context.getFromMl { getGenre(id) }?.let { genre ->
+                                        val tracks = context.getGenrePage(genre, 0)
+                                        if (isActive && tracks.isNotEmpty()) {
+                                            loadMedia(tracks, allowRandom = true)?.join()
+                                            // Remaining tracks are appended page by page while playing
+                                            if (tracks.size == MEDIALIBRARY_PAGE_SIZE) {
+                                                var page = 0
+                                                queueFeeder = QueueFeeder { context.getGenrePage(genre, ++page) }
+                                            }
+                                        }
+                                    }
                                 }
                                 MediaSessionBrowser.ID_PLAYLIST -> {
                                     val tracks = context.getFromMl { getPlaylist(id, Settings.includeMissing)?.tracks }
@@ -235,14 +255,75 @@ internal class MediaSessionCallback(private val playbackService: PlaybackService
         }
     }
 
-    private fun loadMedia(mediaList: List<MediaWrapper>?, position: Int = 0, allowRandom: Boolean = false) {
+    /**
+     * Load the next page of a shuffle all queue. It is made of the next [slices] of the audio
+     * library, small alphabetical ranges taken in random order, so that each page spans the whole
+     * library instead of a single alphabetical range.
+     */
+    private suspend fun Context.getShuffleAllPage(slices: Queue<Int>) = getFromMl {
+        val tracks = ArrayList<MediaWrapper>(MEDIALIBRARY_PAGE_SIZE)
+        while (tracks.size < MEDIALIBRARY_PAGE_SIZE) {
+            val slice = slices.poll() ?: break
+            tracks.addAll(getPagedAudio(Medialibrary.SORT_ALPHA, false, false, SHUFFLE_SLICE_SIZE, slice * SHUFFLE_SLICE_SIZE))
+        }
+        tracks
+    }
+
+    /**
+     * Load a page of the [genre] tracks, sorted by album
+     */
+    private suspend fun Context.getGenrePage(genre: Genre, page: Int) = getFromMl {
+        genre.getPagedTracks(Medialibrary.SORT_ALBUM, false, true, MEDIALIBRARY_PAGE_SIZE, page * MEDIALIBRARY_PAGE_SIZE).toList()
+    }
+
+    /**
+     * Appends the pages returned by [loadNextPage] to the queue when its playback gets close to
+     * the end, so that only one page is loaded upfront whatever the number of tracks. The feeder
+     * stops when there are no more pages, or as soon as the queue is changed by something else.
+     */
+    private inner class QueueFeeder(private val loadNextPage: suspend () -> List<MediaWrapper>) : PlaybackService.Callback by EmptyPBSCallback {
+        private var expectedSize = playbackService.mediaListSize
+        private var played = 0
+        private var loading = false
+        private var attached = true
+
+        init {
+            playbackService.addCallback(this)
+        }
+
+        override fun onMediaPlayerEvent(event: MediaPlayer.Event) {
+            if (event.type != MediaPlayer.Event.Opening || loading) return
+            if (playbackService.mediaListSize != expectedSize) {
+                detach()
+                return
+            }
+            if (++played < expectedSize - QUEUE_PREFETCH_THRESHOLD) return
+            loading = true
+            playbackService.lifecycleScope.launch {
+                val tracks = loadNextPage()
+                // The queue may have been replaced or changed while the page was loading
+                if (!attached) return@launch
+                if (tracks.isEmpty() || playbackService.mediaListSize != expectedSize) return@launch detach()
+                playbackService.append(tracks).join()
+                expectedSize = playbackService.mediaListSize
+                loading = false
+            }
+        }
+
+        fun detach() {
+            attached = false
+            playbackService.removeCallback(this)
+            if (queueFeeder === this) queueFeeder = null
+        }
+    }
+
+    private fun loadMedia(mediaList: List<MediaWrapper>?, position: Int = 0, allowRandom: Boolean = false) =
         mediaList?.let { mediaList ->
             if (AndroidDevices.isCarMode(playbackService.applicationContext))
                 mediaList.forEach { if (it.type == MediaWrapper.TYPE_VIDEO) it.addFlags(MediaWrapper.MEDIA_FORCE_AUDIO) }
             // Pick a random first track if allowRandom is true and shuffle is enabled
             playbackService.load(mediaList, if (allowRandom && playbackService.isShuffling) SecureRandom().nextInt(min(mediaList.size, MEDIALIBRARY_PAGE_SIZE)) else position)
         }
-    }
 
     private fun checkForSeekFailure(forward: Boolean) {
         if (playbackService.playlistManager.player.lastPosition == 0.0f && (forward || playbackService.getTime() > 0))
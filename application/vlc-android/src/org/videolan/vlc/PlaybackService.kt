@@ -24,6 +24,7 @@ import android.annotation.TargetApi
 import android.app.*
 import android.appwidget.AppWidgetManager
 import android.content.*
+import android.content.res.Configuration
 import android.media.AudioManager
 import android.media.audiofx.AudioEffect
 import android.net.Uri
@@ -35,6 +36,8 @@ import android.support.v4.media.session.MediaSessionCompat
 import android.support.v4.media.session.PlaybackStateCompat
 import android.telephony.TelephonyManager
 import android.util.Log
+import android.util.LruCache
+import android.util.SparseArray
 import android.view.View
 import android.widget.TextView
 import android.widget.Toast
@@ -50,9 +53,6 @@ import androidx.lifecycle.*
 import androidx.media.MediaBrowserServiceCompat
 import androidx.media.session.MediaButtonReceiver
 import kotlinx.coroutines.*
-import kotlinx.coroutines.channels.Channel
-import kotlinx.coroutines.channels.SendChannel
-import kotlinx.coroutines.channels.actor
 import kotlinx.coroutines.flow.MutableStateFlow
 import org.videolan.libvlc.FactoryManager
 import org.videolan.libvlc.MediaPlayer
@@ -80,6 +80,7 @@ import org.videolan.vlc.widget.VLCAppWidgetProviderBlack
 import org.videolan.vlc.widget.VLCAppWidgetProviderWhite
 import videolan.org.commontools.LiveEvent
 import java.util.*
+import java.util.concurrent.ConcurrentHashMap
 import kotlin.math.abs
 
 private const val TAG = "VLC/PlaybackService"
@@ -99,11 +100,16 @@ class PlaybackService : MediaBrowserServiceCompat(), LifecycleOwner, CoroutineSc
     internal lateinit var settings: SharedPreferences
     private val binder = LocalBinder()
     internal lateinit var medialibrary: Medialibrary
-    private lateinit var artworkMap: MutableMap<String, Uri>
+    /**
+     * Artwork uris of the media published in the session queue, keyed by media id.
+     * [Uri.EMPTY] marks a media without valid artwork. Cleared when the media list changes.
+     */
+    private val artworkMap = ConcurrentHashMap<String, Uri>()
+    private val artworkToUriCache = ConcurrentHashMap<String, Uri>()
 
     private val callbacks = mutableListOf<Callback>()
     private val subtitleMessage = ArrayDeque<String>(1)
-    private lateinit var cbActor : SendChannel<CbAction>
+    private lateinit var cbActor : ConflatingActor<CbAction>
     private var detectHeadset = true
     private lateinit var wakeLock: PowerManager.WakeLock
     private val audioFocusHelper by lazy { VLCAudioFocusHelper(this) }
@@ -114,7 +120,27 @@ class PlaybackService : MediaBrowserServiceCompat(), LifecycleOwner, CoroutineSc
     internal lateinit var mediaSession: MediaSessionCompat
     @Volatile
     private var notificationShowing = false
-    private var prevUpdateInCarMode = true
+    /**
+     * Playback state custom actions, keyed by icon and built once.
+     * Seek actions are rebuilt when the jump delay changes, all are dropped on configuration change.
+     */
+    private val customActions = SparseArray<PlaybackStateCompat.CustomAction>()
+    private var customActionsJumpDelay = -1
+    private var rewindIcon = R.drawable.ic_auto_rewind
+    private var forwardIcon = R.drawable.ic_auto_forward
+    private val sessionExtras = arrayOfNulls<Bundle>(2)
+    private var lastPodcastMode: Boolean? = null
+    private var queueJob: Job? = null
+    private var publishedQueue = emptyList<MediaSessionCompat.QueueItem>()
+    private var publishedQueueMedia = emptyList<MediaWrapper>()
+    private var publishedQueueOffset = 0
+    private var publishedQueueArtworks = emptyList<String?>()
+    private var pendingQueueMedia: List<MediaWrapper>? = null
+    private var pendingQueueOffset = 0
+    /* Inputs of the last computed queue window, to skip it when only the playback state changed */
+    private var queueWindowPosition = -1
+    private var queueWindowListSize = -1
+    private var queueWindowCarMode = false
     private var lastTime = 0L
     private var lastLength = 0L
     private var lastChapter = 0
@@ -129,6 +155,11 @@ class PlaybackService : MediaBrowserServiceCompat(), LifecycleOwner, CoroutineSc
 
     private val mediaFactory = FactoryManager.getFactory(IMediaFactory.factoryId) as IMediaFactory
 
+    /**
+     * Formatted audio track info by media location, an empty string means no info
+     */
+    private val trackInfoCache = LruCache<String, String>(8)
+
     private val receiver = object : BroadcastReceiver() {
         private var wasPlaying = false
         override fun onReceive(context: Context, intent: Intent) {
@@ -389,37 +420,29 @@ class PlaybackService : MediaBrowserServiceCompat(), LifecycleOwner, CoroutineSc
         return if (currentChapter == null) null else if (formatted) TextUtils.formatChapterTitle(this, currentChapter) else currentChapter
     }
 
-    suspend fun trackInfo(): String? {
-        val mediaWrapper = playlistManager.getCurrentMedia() ?: return null
-        val media = withContext(Dispatchers.IO) {
-            val libVlc = VLCInstance.getInstance(this@PlaybackService)
-            mediaFactory.getFromUri(libVlc, mediaWrapper.uri).apply { parse() }
-        }
-        val tracks = media.getAudioTracks()
-        media.release()
-        return if (tracks.size == 1) tracks.first().formatTrackInfoString(this) else null
-    }
+    suspend fun trackInfo() = getTrackInfo(playlistManager.getCurrentMedia())
 
-    suspend fun prevTrackInfo(): String? {
-        val mediaWrapper = playlistManager.getPrevMedia() ?: return null
-        val media = withContext(Dispatchers.IO) {
-            val libVlc = VLCInstance.getInstance(this@PlaybackService)
-            mediaFactory.getFromUri(libVlc, mediaWrapper.uri).apply { parse() }
-        }
-        val tracks = media.getAudioTracks()
-        media.release()
-        return if (tracks.size == 1) tracks.first().formatTrackInfoString(this) else null
-    }
+    suspend fun prevTrackInfo() = getTrackInfo(playlistManager.getPrevMedia())
+
+    suspend fun nextTrackInfo() = getTrackInfo(playlistManager.getNextMedia())
 
-    suspend fun nextTrackInfo(): String? {
-        val mediaWrapper = playlistManager.getNextMedia() ?: return null
+    /**
+     * Audio track info of [mediaWrapper], parsed once and cached by location so that moving
+     * through the queue or refreshing the UI does not parse the same media again.
+     */
+    private suspend fun getTrackInfo(mediaWrapper: MediaWrapper?): String? {
+        if (mediaWrapper == null) return null
+        val key = mediaWrapper.location
+        trackInfoCache.get(key)?.let { return it.ifEmpty { null } }
         val media = withContext(Dispatchers.IO) {
             val libVlc = VLCInstance.getInstance(this@PlaybackService)
             mediaFactory.getFromUri(libVlc, mediaWrapper.uri).apply { parse() }
         }
         val tracks = media.getAudioTracks()
         media.release()
-        return if (tracks.size == 1) tracks.first().formatTrackInfoString(this) else null
+        val info = if (tracks.size == 1) tracks.first().formatTrackInfoString(this) else null
+        trackInfoCache.put(key, info ?: "")
+        return info
     }
 
     fun IMedia.AudioTrack.formatTrackInfoString(context: Context) = buildString {
@@ -589,8 +612,6 @@ class PlaybackService : MediaBrowserServiceCompat(), LifecycleOwner, CoroutineSc
         Util.checkCpuCompatibility(this)
 
         medialibrary = Medialibrary.getInstance()
-        artworkMap = HashMap<String,Uri>()
-
         browserCallback = MediaBrowserCallback(this)
         browserCallback.registerMediaCallback { if (lastParentId.isNotEmpty()) notifyChildrenChanged(lastParentId) }
         browserCallback.registerHistoryCallback {
@@ -629,10 +650,9 @@ class PlaybackService : MediaBrowserServiceCompat(), LifecycleOwner, CoroutineSc
         serviceFlow.value = this
     }
 
-    @OptIn(ObsoleteCoroutinesApi::class)
     private fun setupScope() {
-        cbActor = lifecycleScope.actor(capacity = Channel.UNLIMITED) {
-            for (update in channel) when (update) {
+        cbActor = ConflatingActor(lifecycleScope, "Service callbacks", conflationKey = CbAction::conflationKey) { update ->
+            when (update) {
                 CbUpdate -> for (callback in callbacks) callback.update()
                 is CbMediaEvent -> for (callback in callbacks) callback.onMediaEvent(update.event)
                 is CbMediaPlayerEvent -> for (callback in callbacks) callback.onMediaPlayerEvent(update.event)
@@ -707,6 +727,17 @@ class PlaybackService : MediaBrowserServiceCompat(), LifecycleOwner, CoroutineSc
 
         unregisterReceiver(receiver)
         playlistManager.onServiceDestroyed()
+        if (::cbActor.isInitialized) cbActor.logStats()
+    }
+
+    override fun onConfigurationChanged(newConfig: Configuration) {
+        super.onConfigurationChanged(newConfig)
+        //Labels may have changed with the locale
+        customActions.clear()
+        if (this::mediaSession.isInitialized) {
+            mediaSession.setQueueTitle(getString(R.string.music_now_playing))
+            publishState()
+        }
     }
 
     override fun onBind(intent: Intent): IBinder? {
@@ -837,7 +868,7 @@ class PlaybackService : MediaBrowserServiceCompat(), LifecycleOwner, CoroutineSc
 
     fun showNotification(): Boolean {
         notificationShowing = true
-        return cbActor.trySend(ShowNotification).isSuccess
+        return cbActor.trySend(ShowNotification)
     }
 
     @TargetApi(Build.VERSION_CODES.LOLLIPOP)
@@ -911,7 +942,7 @@ class PlaybackService : MediaBrowserServiceCompat(), LifecycleOwner, CoroutineSc
 
     private fun hideNotification(remove: Boolean): Boolean {
         notificationShowing = false
-        return if (::cbActor.isInitialized) cbActor.trySend(HideNotification(remove)).isSuccess else false
+        return if (::cbActor.isInitialized) cbActor.trySend(HideNotification(remove)) else false
     }
 
     private fun hideNotificationInternal(remove: Boolean) {
@@ -955,7 +986,9 @@ class PlaybackService : MediaBrowserServiceCompat(), LifecycleOwner, CoroutineSc
             setFlags(MediaSessionCompat.FLAG_HANDLES_MEDIA_BUTTONS or MediaSessionCompat.FLAG_HANDLES_TRANSPORT_CONTROLS)
             setCallback(MediaSessionCallback(this@PlaybackService))
             setPlaybackState(playbackState)
+            setQueueTitle(getString(R.string.music_now_playing))
         }
+        lastPodcastMode = null
         try {
             mediaSession.isActive = true
         } catch (e: NullPointerException) {
@@ -1015,7 +1048,7 @@ class PlaybackService : MediaBrowserServiceCompat(), LifecycleOwner, CoroutineSc
                         //The media id may be 0 on resume
                         val mw = getFromMl { findMedia(media) }
                         val mediaId = MediaSessionBrowser.generateMediaId(mw)
-                        artworkMap[mediaId] ?: ArtworkProvider.buildMediaUri(mw)
+                        artworkMap[mediaId]?.takeUnless { it == Uri.EMPTY } ?: ArtworkProvider.buildMediaUri(mw)
                     }
                 }
                 bob.putString(MediaMetadataCompat.METADATA_KEY_ALBUM_ART_URI, albumArtUri.toString())
@@ -1069,7 +1102,7 @@ class PlaybackService : MediaBrowserServiceCompat(), LifecycleOwner, CoroutineSc
         if (podcastMode) {
             addCustomSeekActions(pscb)
             addCustomSpeedActions(pscb)
-            pscb.addCustomAction(CUSTOM_ACTION_BOOKMARK, getString(R.string.add_bookmark), R.drawable.ic_bookmark_add)
+            pscb.addCustomAction(getCustomAction(CUSTOM_ACTION_BOOKMARK, R.string.add_bookmark, R.drawable.ic_bookmark_add))
         } else {
             if (playlistManager.canRepeat())
                 actions = actions or PlaybackStateCompat.ACTION_SET_REPEAT_MODE
@@ -1080,13 +1113,13 @@ class PlaybackService : MediaBrowserServiceCompat(), LifecycleOwner, CoroutineSc
                 isShuffling -> R.drawable.ic_auto_shuffle_enabled
                 else -> R.drawable.ic_auto_shuffle_disabled
             }
-            pscb.addCustomAction(CUSTOM_ACTION_SHUFFLE, getString(R.string.shuffle_title), shuffleResId)
+            pscb.addCustomAction(getCustomAction(CUSTOM_ACTION_SHUFFLE, R.string.shuffle_title, shuffleResId))
             val repeatResId = when (repeatType) {
                 PlaybackStateCompat.REPEAT_MODE_ALL -> R.drawable.ic_auto_repeat_pressed
                 PlaybackStateCompat.REPEAT_MODE_ONE -> R.drawable.ic_auto_repeat_one_pressed
                 else -> R.drawable.ic_auto_repeat_normal
             }
-            pscb.addCustomAction(CUSTOM_ACTION_REPEAT, getString(R.string.repeat_title), repeatResId)
+            pscb.addCustomAction(getCustomAction(CUSTOM_ACTION_REPEAT, R.string.repeat_title, repeatResId))
             addCustomSpeedActions(pscb, settings.getBoolean("enable_android_auto_speed_buttons", false))
             addCustomSeekActions(pscb, settings.getBoolean("enable_android_auto_seek_buttons", false))
         }
@@ -1094,55 +1127,57 @@ class PlaybackService : MediaBrowserServiceCompat(), LifecycleOwner, CoroutineSc
         pscb.setActions(actions)
         mediaSession.setRepeatMode(repeatType)
         mediaSession.setShuffleMode(if (isShuffling) PlaybackStateCompat.SHUFFLE_MODE_ALL else PlaybackStateCompat.SHUFFLE_MODE_NONE)
-        mediaSession.setExtras(Bundle().apply {
-            putBoolean(WEARABLE_RESERVE_SLOT_SKIP_TO_NEXT, !podcastMode)
-            putBoolean(WEARABLE_RESERVE_SLOT_SKIP_TO_PREV, !podcastMode)
-            putBoolean(PLAYBACK_SLOT_RESERVATION_SKIP_TO_NEXT, !podcastMode)
-            putBoolean(PLAYBACK_SLOT_RESERVATION_SKIP_TO_PREV, !podcastMode)
-        })
+        if (lastPodcastMode != podcastMode) {
+            lastPodcastMode = podcastMode
+            mediaSession.setExtras(getSessionExtras(podcastMode))
+        }
         val mediaIsActive = state != PlaybackStateCompat.STATE_STOPPED
         val update = mediaSession.isActive != mediaIsActive
         updateMediaQueueSlidingWindow()
         mediaSession.setPlaybackState(pscb.build())
         enabledActions = actions
         mediaSession.isActive = mediaIsActive
-        mediaSession.setQueueTitle(getString(R.string.music_now_playing))
         if (update) {
             if (mediaIsActive) sendStartSessionIdIntent()
             else sendStopSessionIdIntent()
         }
     }
 
+    private fun getCustomAction(action: String, @StringRes name: Int, icon: Int, showOnWearable: Boolean = false): PlaybackStateCompat.CustomAction {
+        return customActions.get(icon) ?: PlaybackStateCompat.CustomAction.Builder(action, getString(name), icon).apply {
+            if (showOnWearable) setExtras(Bundle().apply { putBoolean(WEARABLE_SHOW_CUSTOM_ACTION, true) })
+        }.build().also { customActions.put(icon, it) }
+    }
+
+    private fun getSessionExtras(podcastMode: Boolean): Bundle {
+        val index = if (podcastMode) 1 else 0
+        return sessionExtras[index] ?: Bundle().apply {
+            putBoolean(WEARABLE_RESERVE_SLOT_SKIP_TO_NEXT, !podcastMode)
+            putBoolean(WEARABLE_RESERVE_SLOT_SKIP_TO_PREV, !podcastMode)
+            putBoolean(PLAYBACK_SLOT_RESERVATION_SKIP_TO_NEXT, !podcastMode)
+            putBoolean(PLAYBACK_SLOT_RESERVATION_SKIP_TO_PREV, !podcastMode)
+        }.also { sessionExtras[index] = it }
+    }
+
     private fun addCustomSeekActions(pscb: PlaybackStateCompat.Builder, showSeekActions: Boolean = true) {
         if (!showSeekActions) return
         val ctx = applicationContext
+        val jumpDelay = Settings.audioJumpDelay
+        if (customActionsJumpDelay != jumpDelay) {
+            customActionsJumpDelay = jumpDelay
+            rewindIcon = DrawableCache.getDrawableFromMemCache(ctx, "ic_auto_rewind_$jumpDelay", R.drawable.ic_auto_rewind)
+            forwardIcon = DrawableCache.getDrawableFromMemCache(ctx, "ic_auto_forward_$jumpDelay", R.drawable.ic_auto_forward)
+        }
         /* Rewind */
-        pscb.addCustomAction(PlaybackStateCompat.CustomAction.Builder(CUSTOM_ACTION_REWIND,
-                getString(R.string.playback_rewind),
-                DrawableCache.getDrawableFromMemCache(ctx, "ic_auto_rewind_${Settings.audioJumpDelay}", R.drawable.ic_auto_rewind))
-                .setExtras(Bundle().apply { putBoolean(WEARABLE_SHOW_CUSTOM_ACTION, true) })
-                .build())
+        pscb.addCustomAction(getCustomAction(CUSTOM_ACTION_REWIND, R.string.playback_rewind, rewindIcon, showOnWearable = true))
         /* Fast Forward */
-        pscb.addCustomAction(PlaybackStateCompat.CustomAction.Builder(CUSTOM_ACTION_FAST_FORWARD,
-                getString(R.string.playback_forward),
-                DrawableCache.getDrawableFromMemCache(ctx, "ic_auto_forward_${Settings.audioJumpDelay}", R.drawable.ic_auto_forward))
-                .setExtras(Bundle().apply { putBoolean(WEARABLE_SHOW_CUSTOM_ACTION, true) })
-                .build())
+        pscb.addCustomAction(getCustomAction(CUSTOM_ACTION_FAST_FORWARD, R.string.playback_forward, forwardIcon, showOnWearable = true))
     }
 
     private fun addCustomSpeedActions(pscb: PlaybackStateCompat.Builder, showSpeedActions: Boolean = true) {
         if (speed != 1.0F || showSpeedActions) {
-            val speedIcons = hashMapOf(
-                0.50f to R.drawable.ic_auto_speed_0_50,
-                0.80f to R.drawable.ic_auto_speed_0_80,
-                1.00f to R.drawable.ic_auto_speed_1_00,
-                1.10f to R.drawable.ic_auto_speed_1_10,
-                1.20f to R.drawable.ic_auto_speed_1_20,
-                1.50f to R.drawable.ic_auto_speed_1_50,
-                2.00f to R.drawable.ic_auto_speed_2_00
-            )
             val speedResId = speedIcons[speedIcons.keys.minByOrNull { abs(speed - it) }] ?: R.drawable.ic_auto_speed
-            pscb.addCustomAction(CUSTOM_ACTION_SPEED, getString(R.string.playback_speed), speedResId)
+            pscb.addCustomAction(getCustomAction(CUSTOM_ACTION_SPEED, R.string.playback_speed, speedResId))
         }
     }
 
@@ -1305,86 +1340,143 @@ class PlaybackService : MediaBrowserServiceCompat(), LifecycleOwner, CoroutineSc
 
     private fun updateMediaQueue() = lifecycleScope.launch(start = CoroutineStart.UNDISPATCHED) {
         if (!this@PlaybackService::mediaSession.isInitialized) initMediaSession()
-        artworkMap = HashMap<String, Uri>().also {
-            val artworkToUriCache = HashMap<String, Uri>()
-            for (media in playlistManager.getMediaList()) {
-                try {
-                    val artworkMrl = media.artworkMrl
-                    if (!artworkMrl.isNullOrEmpty() && isPathValid(artworkMrl)) {
-                        val artworkUri = artworkToUriCache.getOrPut(artworkMrl) { ArtworkProvider.buildMediaUri(media) }
-                        val key = MediaSessionBrowser.generateMediaId(media)
-                        it[key] = artworkUri
-                    }
-                } catch (e: java.lang.NullPointerException) {
-                    Log.e("PlaybackService", "Caught NullPointerException", e)
-                    VLCCrashHandler.saveLog(e, "NullPointerException in PlaybackService updateMediaQueue")
-                }
-            }
-            artworkToUriCache.clear()
-        }
+        // Artworks may have been found or changed since they were resolved
+        artworkMap.clear()
+        artworkToUriCache.clear()
         updateMediaQueueSlidingWindow(true)
     }
 
     /**
-     * Set the mediaSession queue to a sliding window of fifteen tracks max, with the current song
-     * centered in the queue (when possible). Fifteen tracks are used instead of seventeen to
-     * prevent the "Search By Name" bar from appearing on the top of the window.
-     * If Android Auto is exited, set the entire queue on the next update so that Bluetooth
-     * headunits that report the track number show the correct value in the playlist.
+     * Set the mediaSession queue to a sliding window around the current song, centered in the
+     * queue (when possible). The whole play queue is never published, so that the binder payload
+     * and the work done on each change do not depend on the queue length.
+     * In car mode, fifteen tracks are used instead of seventeen to prevent the "Search By Name"
+     * bar from appearing on the top of the window. Queue item ids are the playlist positions, so
+     * Bluetooth headunits that report the track number still show the correct value.
+     * Unless [mediaListChanged], the window is only recomputed when the current position moved.
      */
-    private fun updateMediaQueueSlidingWindow(mediaListChanged: Boolean = false) = lifecycleScope.launch(start = CoroutineStart.UNDISPATCHED) {
-        if (AndroidDevices.isCarMode(this@PlaybackService)) {
-            val mediaList = playlistManager.getMediaList()
-            val halfWindowSize = 7
-            val windowSize = 2 * halfWindowSize + 1
-            val songNum = currentMediaPosition + 1
-            var fromIndex = 0
-            var toIndex = (mediaList.size).coerceAtMost(windowSize)
-            if (songNum > halfWindowSize) {
-                toIndex = (songNum + halfWindowSize).coerceAtMost(mediaList.size)
-                fromIndex = (toIndex - windowSize).coerceAtLeast(0)
-            }
-            //The on-screen queue icon will disappear if an empty queue is passed.
-            if (mediaList.isNotEmpty()) buildQueue(mediaList, fromIndex, toIndex)
-            prevUpdateInCarMode = true
-        } else if (mediaListChanged || prevUpdateInCarMode) {
-            buildQueue(playlistManager.getMediaList())
-            prevUpdateInCarMode = false
-        }
+    private fun updateMediaQueueSlidingWindow(mediaListChanged: Boolean = false) {
+        val carMode = AndroidDevices.isCarMode(this@PlaybackService)
+        val size = playlistManager.getMediaListSize()
+        val position = currentMediaPosition
+        if (!mediaListChanged && position == queueWindowPosition && size == queueWindowListSize && carMode == queueWindowCarMode) return
+        queueWindowPosition = position
+        queueWindowListSize = size
+        queueWindowCarMode = carMode
+        //The on-screen queue icon will disappear if an empty queue is passed.
+        if (carMode && size == 0) return
+        val halfWindowSize = if (carMode) CAR_QUEUE_HALF_WINDOW_SIZE else QUEUE_HALF_WINDOW_SIZE
+        val windowSize = 2 * halfWindowSize + 1
+        val songNum = position + 1
+        var fromIndex = 0
+        var toIndex = size.coerceAtMost(windowSize)
+        if (songNum > halfWindowSize) {
+            toIndex = (songNum + halfWindowSize).coerceAtMost(size)
+            fromIndex = (toIndex - windowSize).coerceAtLeast(0)
+        }
+        buildQueue(playlistManager.getMediaListRange(fromIndex, toIndex), fromIndex)
     }
 
-    private fun buildQueue(mediaList: List<MediaWrapper>, fromIndex: Int = 0, toIndex: Int = mediaList.size) = lifecycleScope.launch(start = CoroutineStart.UNDISPATCHED) {
-        if (!this@PlaybackService.lifecycle.currentState.isAtLeast(Lifecycle.State.CREATED)) return@launch
+    /**
+     * Publish the queue [window] starting at [fromIndex].
+     * Nothing is published if the window did not change since the last publication or is
+     * already being built, and queue items of unchanged media still present at the same
+     * position are reused.
+     */
+    private fun buildQueue(window: List<MediaWrapper>, fromIndex: Int) {
+        if (!this@PlaybackService.lifecycle.currentState.isAtLeast(Lifecycle.State.CREATED)) return
+        if (queueJob?.isActive == true) {
+            val pendingMedia = pendingQueueMedia
+            if (pendingMedia != null && fromIndex == pendingQueueOffset && window.size == pendingMedia.size
+                    && window.indices.all { window[it] === pendingMedia[it] }) return
+            // The window being built is outdated, even if the new one is the published one
+            queueJob?.cancel()
+        }
         val ctx = this@PlaybackService
-        val queue = withContext(Dispatchers.Default) {
-            ArrayList<MediaSessionCompat.QueueItem>(toIndex - fromIndex).also {
-                for ((position, media) in mediaList.subList(fromIndex, toIndex).withIndex()) {
-                    val title: String = media.nowPlaying ?: media.title
-                    val mediaId = MediaSessionBrowser.generateMediaId(media)
-                    val iconUri = when {
-                        isSchemeHttpOrHttps(media.artworkMrl) -> {
-                            //ArtworkProvider will cache remote images
-                            ArtworkProvider.buildUri(Uri.Builder()
-                                    .appendPath(ArtworkProvider.REMOTE)
-                                    .appendQueryParameter(ArtworkProvider.PATH, media.artworkMrl)
-                                    .build())
-                        }
-                        ThumbnailsProvider.isMediaVideo(media) -> ArtworkProvider.buildMediaUri(media)
-                        else -> artworkMap[mediaId] ?: MediaSessionBrowser.DEFAULT_TRACK_ICON
+        val previousQueue = publishedQueue
+        val previousMedia = publishedQueueMedia
+        val previousArtworks = publishedQueueArtworks
+        val previousOffset = publishedQueueOffset
+        fun reusableItem(index: Int, media: MediaWrapper): MediaSessionCompat.QueueItem? {
+            val item = previousQueue.getOrNull(index - previousOffset) ?: return null
+            if (previousMedia[index - previousOffset] !== media || previousArtworks[index - previousOffset] != media.artworkMrl) return null
+            val description = item.description
+            return if (description.title == (media.nowPlaying ?: media.title)
+                    && description.subtitle == MediaUtils.getMediaArtist(ctx, media)
+                    && description.description == MediaUtils.getMediaAlbum(ctx, media)) item else null
+        }
+        if (fromIndex == previousOffset && window.size == previousQueue.size
+                && window.withIndex().all { (position, media) -> reusableItem(fromIndex + position, media) != null }) return
+        pendingQueueMedia = window
+        pendingQueueOffset = fromIndex
+        queueJob = lifecycleScope.launch(start = CoroutineStart.UNDISPATCHED) {
+            val artworks = ArrayList<String?>(window.size)
+            val queue = withContext(Dispatchers.Default) {
+                ArrayList<MediaSessionCompat.QueueItem>(window.size).also {
+                    for ((position, media) in window.withIndex()) {
+                        val index = fromIndex + position
+                        artworks.add(media.artworkMrl)
+                        it.add(reusableItem(index, media) ?: buildQueueItem(ctx, media, index))
                     }
-                    val mediaDesc = MediaDescriptionCompat.Builder()
-                            .setTitle(title)
-                            .setSubtitle(MediaUtils.getMediaArtist(ctx, media))
-                            .setDescription(MediaUtils.getMediaAlbum(ctx, media))
-                            .setIconUri(iconUri)
-                            .setMediaUri(media.uri)
-                            .setMediaId(mediaId)
-                            .build()
-                    it.add(MediaSessionCompat.QueueItem(mediaDesc, (fromIndex + position).toLong()))
                 }
             }
+            if (artworkMap.size > MAX_ARTWORK_CACHE_SIZE) {
+                val ids = queue.mapTo(HashSet()) { it.description.mediaId }
+                artworkMap.keys.retainAll(ids)
+                artworkToUriCache.clear()
+            }
+            publishedQueue = queue
+            publishedQueueMedia = window
+            publishedQueueOffset = fromIndex
+            publishedQueueArtworks = artworks
+            pendingQueueMedia = null
+            mediaSession.setQueue(queue)
+        }
+    }
+
+    private fun buildQueueItem(ctx: Context, media: MediaWrapper, index: Int): MediaSessionCompat.QueueItem {
+        val title: String = media.nowPlaying ?: media.title
+        val mediaId = MediaSessionBrowser.generateMediaId(media)
+        val iconUri = when {
+            isSchemeHttpOrHttps(media.artworkMrl) -> {
+                //ArtworkProvider will cache remote images
+                ArtworkProvider.buildUri(Uri.Builder()
+                        .appendPath(ArtworkProvider.REMOTE)
+                        .appendQueryParameter(ArtworkProvider.PATH, media.artworkMrl)
+                        .build())
+            }
+            ThumbnailsProvider.isMediaVideo(media) -> ArtworkProvider.buildMediaUri(media)
+            else -> getArtworkUri(media, mediaId) ?: MediaSessionBrowser.DEFAULT_TRACK_ICON
+        }
+        val mediaDesc = MediaDescriptionCompat.Builder()
+                .setTitle(title)
+                .setSubtitle(MediaUtils.getMediaArtist(ctx, media))
+                .setDescription(MediaUtils.getMediaAlbum(ctx, media))
+                .setIconUri(iconUri)
+                .setMediaUri(media.uri)
+                .setMediaId(mediaId)
+                .build()
+        return MediaSessionCompat.QueueItem(mediaDesc, index.toLong())
+    }
+
+    /**
+     * Resolve and cache the artwork uri of a queued media.
+     * Media sharing the same artwork share the same uri, so that clients can cache it.
+     */
+    private fun getArtworkUri(media: MediaWrapper, mediaId: String): Uri? {
+        val uri = artworkMap.getOrPut(mediaId) {
+            try {
+                val artworkMrl = media.artworkMrl
+                if (!artworkMrl.isNullOrEmpty() && isPathValid(artworkMrl))
+                    artworkToUriCache.getOrPut(artworkMrl) { ArtworkProvider.buildMediaUri(media) }
+                else Uri.EMPTY
+            } catch (e: java.lang.NullPointerException) {
+                Log.e("PlaybackService", "Caught NullPointerException", e)
+                VLCCrashHandler.saveLog(e, "NullPointerException in PlaybackService getArtworkUri")
+                Uri.EMPTY
+            }
         }
-        mediaSession.setQueue(queue)
+        return uri.takeUnless { it == Uri.EMPTY }
     }
 
     fun displayPlaybackError(@StringRes resId: Int) {
@@ -1746,6 +1838,20 @@ class PlaybackService : MediaBrowserServiceCompat(), LifecycleOwner, CoroutineSc
         private const val SHOW_TOAST = 1
         private const val END_MEDIASESSION = 2
 
+        private val speedIcons = hashMapOf(
+                0.50f to R.drawable.ic_auto_speed_0_50,
+                0.80f to R.drawable.ic_auto_speed_0_80,
+                1.00f to R.drawable.ic_auto_speed_1_00,
+                1.10f to R.drawable.ic_auto_speed_1_10,
+                1.20f to R.drawable.ic_auto_speed_1_20,
+                1.50f to R.drawable.ic_auto_speed_1_50,
+                2.00f to R.drawable.ic_auto_speed_2_00
+        )
+
+        private const val CAR_QUEUE_HALF_WINDOW_SIZE = 7
+        private const val QUEUE_HALF_WINDOW_SIZE = 100
+        private const val MAX_ARTWORK_CACHE_SIZE = 1000
+
         val playerSleepTime by lazy(LazyThreadSafetyMode.NONE) { MutableLiveData<Calendar?>().apply { value = null } }
 
         fun start(context: Context) {
@@ -1791,16 +1897,34 @@ class PlaybackService : MediaBrowserServiceCompat(), LifecycleOwner, CoroutineSc
 }
 
 // Actor actions sealed classes
-private sealed class CbAction
+private sealed class CbAction {
+    /**
+     * Key used to conflate superseded actions, see [ConflatingActor]
+     */
+    open val conflationKey: Int
+        get() = ConflatingActor.NO_CONFLATION
+}
 
-private object CbUpdate : CbAction()
+private object CbUpdate : CbAction() {
+    override val conflationKey = 0
+}
 private class CbMediaEvent(val event: IMedia.Event) : CbAction()
-private class CbMediaPlayerEvent(val event: MediaPlayer.Event) : CbAction()
+private class CbMediaPlayerEvent(val event: MediaPlayer.Event) : CbAction() {
+    override val conflationKey: Int
+        get() = when (event.type) {
+            MediaPlayer.Event.TimeChanged, MediaPlayer.Event.PositionChanged, MediaPlayer.Event.Buffering -> event.type
+            else -> ConflatingActor.NO_CONFLATION
+        }
+}
 private class CbAdd(val cb: PlaybackService.Callback) : CbAction()
 private class CbRemove(val cb: PlaybackService.Callback) : CbAction()
-private object ShowNotification : CbAction()
+private object ShowNotification : CbAction() {
+    override val conflationKey = 1
+}
 private class HideNotification(val remove: Boolean) : CbAction()
-private object UpdateMeta : CbAction()
+private object UpdateMeta : CbAction() {
+    override val conflationKey = 2
+}
 
 fun PlaybackService.manageAbRepeatStep(abRepeatReset: View, abRepeatStop: View, abRepeatContainer: View, abRepeatAddMarker: TextView) {
     when {
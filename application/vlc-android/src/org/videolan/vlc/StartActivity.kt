@@ -191,8 +191,8 @@ class StartActivity : FragmentActivity() {
                     startApplication(tv, firstRun, upgrade, target, removeOldDevices)
             }
         }
-        FileUtils.copyLua(applicationContext, upgrade)
-        FileUtils.copyHrtfs(applicationContext, upgrade)
+        FileUtils.copyLua(applicationContext)
+        FileUtils.copyHrtfs(applicationContext)
         if (AndroidDevices.watchDevices) this.enableStorageMonitoring()
         finish()
     }
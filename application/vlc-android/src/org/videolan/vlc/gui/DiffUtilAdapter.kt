@@ -1,43 +1,115 @@
 package org.videolan.vlc.gui
 
 import androidx.annotation.MainThread
+import androidx.recyclerview.widget.AdapterListUpdateCallback
 import androidx.recyclerview.widget.DiffUtil
+import androidx.recyclerview.widget.ListUpdateCallback
 import androidx.recyclerview.widget.RecyclerView
 import kotlinx.coroutines.*
 import kotlinx.coroutines.channels.Channel
 import kotlinx.coroutines.channels.actor
+import org.videolan.medialibrary.media.MediaLibraryItem
+import org.videolan.vlc.util.MediaItemDiffCallback
+import java.util.*
+import kotlin.math.min
 
 abstract class DiffUtilAdapter<D, VH : RecyclerView.ViewHolder> : RecyclerView.Adapter<VH>(), CoroutineScope {
     override val coroutineContext = Dispatchers.Main.immediate + SupervisorJob()
 
     var dataset: List<D> = listOf()
     private set
+    /* The dataset was received without copy, it still belongs to the caller of update() */
+    private var sharedDataset = false
     private val diffCallback by lazy(LazyThreadSafetyMode.NONE) { createCB() }
+    private val listUpdateCallback by lazy(LazyThreadSafetyMode.NONE) { AdapterListUpdateCallback(this) }
+    /* Incremented on each update, lets a running diff know it has been superseded */
+    @Volatile private var updateId = 0
 
     @OptIn(ObsoleteCoroutinesApi::class)
-    private val updateActor = actor<List<D>>(capacity = Channel.CONFLATED) {
-        for (list in channel) internalUpdate(list)
+    private val updateActor = actor<Update<D>>(capacity = Channel.CONFLATED) {
+        for (update in channel) internalUpdate(update)
     }
     protected open fun onUpdateFinished() {}
 
+    /**
+     * Update the adapter content
+     * @param list the new items
+     * @param copy false if [list] won't be modified anymore, it is then used as is instead of being copied
+     */
     @MainThread
-    fun update (list: List<D>) {
-        updateActor.trySend(list)
+    fun update (list: List<D>, copy: Boolean = true) {
+        ++updateId
+        updateActor.trySend(Update(list, copy))
     }
 
     @MainThread
-    private suspend fun internalUpdate(list: List<D>) {
-        val (finalList, result) = withContext(Dispatchers.Default) {
-            val finalList = prepareList(list)
-            val result = DiffUtil.calculateDiff(diffCallback.apply { update(dataset, finalList) }, detectMoves())
-            Pair(finalList, result)
+    private suspend fun internalUpdate(update: Update<D>) {
+        val id = updateId
+        val (finalList, dispatch) = try {
+            withContext(Dispatchers.Default) {
+                val finalList = prepareList(if (update.copy) update.list.toList() else update.list)
+                Pair(finalList, computeUpdates(dataset, finalList, id))
+            }
+        } catch (e: SupersededException) {
+            // A newer list is waiting in the actor, it will be diffed against the current dataset
+            return
         }
         dataset = finalList
-        result.dispatchUpdatesTo(this@DiffUtilAdapter)
+        sharedDataset = !update.copy
+        dispatch(listUpdateCallback)
         onUpdateFinished()
     }
 
-    protected open fun prepareList(list: List<D>) : List<D> = list.toList()
+    /**
+     * Swap two items of the dataset, to follow a drag until the updated list is received.
+     * A dataset received without copy is copied first, so that the caller's list is not modified.
+     */
+    @MainThread
+    protected fun swapItems(from: Int, to: Int) {
+        if (sharedDataset) {
+            dataset = dataset.toMutableList()
+            sharedDataset = false
+        }
+        Collections.swap(dataset, from, to)
+    }
+
+    /**
+     * Common leading and trailing items are skipped, so that appends, single insertions and removals
+     * don't need a diff. Only the remaining range of the lists is diffed.
+     * @return the dispatch of the updates from [oldList] to [newList]
+     */
+    private fun computeUpdates(oldList: List<D>, newList: List<D>, id: Int): (ListUpdateCallback) -> Unit {
+        val callback = diffCallback.apply { update(oldList, newList) }
+        val oldSize = oldList.size
+        val newSize = newList.size
+        val minSize = min(oldSize, newSize)
+        var start = 0
+        while (start < minSize && isSameItem(callback, start, start, id)) ++start
+        var end = 0
+        while (end < minSize - start && isSameItem(callback, oldSize - 1 - end, newSize - 1 - end, id)) ++end
+        val oldCount = oldSize - start - end
+        val newCount = newSize - start - end
+        if (oldCount == 0 && newCount == 0) return {}
+        if (oldCount == 0) return { it.onInserted(start, newCount) }
+        if (newCount == 0) return { it.onRemoved(start, oldCount) }
+        val result = DiffUtil.calculateDiff(RangeCallback(callback, start, oldCount, newCount, id), detectMoves())
+        return { result.dispatchUpdatesTo(OffsetListUpdateCallback(it, start)) }
+    }
+
+    private fun isSameItem(callback: DiffCallback<D>, oldPosition: Int, newPosition: Int, id: Int): Boolean {
+        checkSuperseded(id)
+        return callback.areItemsTheSame(oldPosition, newPosition) && callback.areContentsTheSame(oldPosition, newPosition)
+    }
+
+    private fun checkSuperseded(id: Int) {
+        if (id != updateId) throw SupersededException()
+    }
+
+    /**
+     * Hook to process the new items before diffing, on a background thread
+     * @param list the new items, owned by the adapter
+     */
+    protected open fun prepareList(list: List<D>) : List<D> = list
 
     @MainThread
     fun isEmpty() = dataset.isEmpty()
@@ -63,8 +135,49 @@ abstract class DiffUtilAdapter<D, VH : RecyclerView.ViewHolder> : RecyclerView.A
 
         override fun getNewListSize() = newList.size
 
-        override fun areContentsTheSame(oldItemPosition : Int, newItemPosition : Int) = true
+        override fun areContentsTheSame(oldItemPosition : Int, newItemPosition : Int): Boolean {
+            val oldItem = oldList[oldItemPosition]
+            val newItem = newList[newItemPosition]
+            return when {
+                oldItem === newItem -> true
+                oldItem is MediaLibraryItem && newItem is MediaLibraryItem -> MediaItemDiffCallback.areContentsTheSame(oldItem, newItem)
+                else -> oldItem == newItem
+            }
+        }
 
         override fun areItemsTheSame(oldItemPosition : Int, newItemPosition : Int) = oldList[oldItemPosition] == newList[newItemPosition]
     }
+
+    private class Update<D>(val list: List<D>, val copy: Boolean)
+
+    private class SupersededException : RuntimeException()
+
+    /**
+     * Diff callback restricted to the [oldSize] and [newSize] items following [offset]
+     */
+    private inner class RangeCallback(private val callback: DiffCallback<D>, private val offset: Int,
+                                      private val oldSize: Int, private val newSize: Int, private val id: Int) : DiffUtil.Callback() {
+        override fun getOldListSize() = oldSize
+
+        override fun getNewListSize() = newSize
+
+        override fun areItemsTheSame(oldItemPosition: Int, newItemPosition: Int): Boolean {
+            checkSuperseded(id)
+            return callback.areItemsTheSame(oldItemPosition + offset, newItemPosition + offset)
+        }
+
+        override fun areContentsTheSame(oldItemPosition: Int, newItemPosition: Int) = callback.areContentsTheSame(oldItemPosition + offset, newItemPosition + offset)
+
+        override fun getChangePayload(oldItemPosition: Int, newItemPosition: Int) = callback.getChangePayload(oldItemPosition + offset, newItemPosition + offset)
+    }
+
+    private class OffsetListUpdateCallback(private val callback: ListUpdateCallback, private val offset: Int) : ListUpdateCallback {
+        override fun onInserted(position: Int, count: Int) = callback.onInserted(position + offset, count)
+
+        override fun onRemoved(position: Int, count: Int) = callback.onRemoved(position + offset, count)
+
+        override fun onMoved(fromPosition: Int, toPosition: Int) = callback.onMoved(fromPosition + offset, toPosition + offset)
+
+        override fun onChanged(position: Int, count: Int, payload: Any?) = callback.onChanged(position + offset, count, payload)
+    }
 }
\ No newline at end of file
@@ -133,7 +133,8 @@ class AudioPlayer : Fragment(), PlaylistAdapter.IPlayer, TextWatcher, IAudioPlay
         playlistAdapter.setModel(playlistModel)
         playlistModel.dataset.asFlow().conflate().onEach {
             doUpdate()
-            playlistAdapter.update(it)
+            // PlaylistModel publishes a new list for each queue change
+            playlistAdapter.update(it, copy = false)
             delay(50L)
         }.launchWhenStarted(lifecycleScope)
         bookmarkModel = BookmarkModel.get(requireActivity())
@@ -414,7 +415,7 @@ class AudioPlayer : Fragment(), PlaylistAdapter.IPlayer, TextWatcher, IAudioPlay
 
         lifecycleScope.launchWhenStarted {
             val text = withContext(Dispatchers.Default) {
-                val medias = playlistModel.medias ?: return@withContext ""
+                val mediaCount = playlistModel.service?.mediaListSize ?: return@withContext ""
                 withContext(Dispatchers.Main) { if (!shouldHidePlayProgress()) binding.audioPlayProgress.setVisible() else binding.audioPlayProgress.setGone() }
                 if (playlistModel.currentMediaPosition == -1) return@withContext ""
                 val elapsedTracksTime = playlistModel.previousTotalTime ?: return@withContext ""
@@ -429,7 +430,7 @@ class AudioPlayer : Fragment(), PlaylistAdapter.IPlayer, TextWatcher, IAudioPlay
                 val totalTimeText = Tools.millisToString(totalTime, false, false, false)
                 val currentProgressText = if (progressTimeText.isNullOrEmpty()) "0:00" else progressTimeText
 
-                val textTrack = getString(R.string.track_index, "${playlistModel.currentMediaPosition + 1} / ${medias.size}")
+                val textTrack = getString(R.string.track_index, "${playlistModel.currentMediaPosition + 1} / $mediaCount")
 
                 val textProgress = if (audioPlayProgressMode) {
                     val endsAt = System.currentTimeMillis() + totalTime - progressTime
@@ -60,7 +60,6 @@ import org.videolan.vlc.interfaces.SwipeDragHelperAdapter
 import org.videolan.vlc.media.MediaUtils
 import org.videolan.vlc.util.MediaItemDiffCallback
 import org.videolan.vlc.viewmodels.PlaylistModel
-import java.util.*
 
 private const val ACTION_MOVE = 0
 private const val ACTION_MOVED = 1
@@ -170,7 +169,7 @@ class PlaylistAdapter(private val player: IPlayer) : DiffUtilAdapter<MediaWrappe
     }
 
     override fun onItemMove(fromPosition: Int, toPosition: Int) {
-        Collections.swap(dataset, fromPosition, toPosition)
+        swapItems(fromPosition, toPosition)
         notifyItemMoved(fromPosition, toPosition)
         mHandler.obtainMessage(ACTION_MOVE, fromPosition, toPosition).sendToTarget()
     }
@@ -299,13 +299,12 @@ open class BaseBrowserAdapter(val browserContainer: BrowserContainer<MediaLibrar
     open fun checkBoxAction(v: View, mrl: String) {}
 
     override fun prepareList(list: List<MediaLibraryItem>): List<MediaLibraryItem> {
-        val internalList = ArrayList(list)
         mediaCount = 0
-        for (item in internalList) {
+        for (item in list) {
             if (item.itemType == TYPE_MEDIA && ((item as MediaWrapper).type == MediaWrapper.TYPE_AUDIO || item.type == MediaWrapper.TYPE_VIDEO))
                 ++mediaCount
         }
-        return internalList
+        return list
     }
 
     override fun onUpdateFinished() {
@@ -492,7 +492,7 @@ abstract class BaseBrowserFragment : MediaBrowserFragment<BrowserModel>(), IRefr
         } else {
             mediaWrapper.removeFlags(MediaWrapper.MEDIA_FORCE_AUDIO)
             if (mediaWrapper.type == MediaWrapper.TYPE_DIR) browse(mediaWrapper, true)
-            else MediaUtils.openList(v.context, viewModel.dataset.getList().filter { it.itemType !=  MediaWrapper.TYPE_DIR}.map { it as MediaWrapper }, position)
+            else MediaUtils.openList(v.context, viewModel.dataset.list.filter { it.itemType !=  MediaWrapper.TYPE_DIR}.map { it as MediaWrapper }, position)
         }
     }
 
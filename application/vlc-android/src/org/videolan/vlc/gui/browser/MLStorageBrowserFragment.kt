@@ -135,7 +135,7 @@ class MLStorageBrowserFragment : BaseFragment(), IStorageFragmentDelegate by Sto
         networkViewModel.dataset.observe(viewLifecycleOwner) { list ->
             list?.let {
                 val filtered = it.filter { item -> item is MediaWrapper && item.uri?.scheme == "smb" }
-                networkAdapter.update(filtered)
+                networkAdapter.update(filtered, copy = false)
                 updateNetworkEmptyView(networkEntry.loading)
                 if (networkViewModel.loading.value == false) networkEntry.loading.state = if (list.isEmpty()) EmptyLoadingState.EMPTY else EmptyLoadingState.NONE
             }
@@ -23,6 +23,7 @@
 
 package org.videolan.vlc.gui.dialogs
 
+import android.net.Uri
 import android.os.Bundle
 import android.view.KeyEvent
 import android.view.LayoutInflater
@@ -208,21 +209,17 @@ class SavePlaylistDialog : VLCBottomSheetDialogFragment(), View.OnClickListener,
     private fun savePlaylist(playlist: Playlist, tracks: Array<MediaWrapper>) {
         AppScope.launch(coroutineContextProvider.IO) {
             if (tracks.isEmpty()) return@launch
-            val ids = LinkedList<Long>()
+            val ids = LongArray(tracks.size)
+            var count = 0
+            // Unknown media are resolved once per uri, even if they are added several times
+            val resolvedIds = HashMap<Uri, Long>()
             for (mw in tracks) {
-                val id = mw.id
-                if (id == 0L) {
-                    var media = medialibrary.getMedia(mw.uri)
-                    if (media != null)
-                        ids.add(media.id)
-                    else {
-                        media = medialibrary.addMedia(mw.location, -1L)
-                        if (media != null) ids.add(media.id)
-                    }
-                } else
-                    ids.add(id)
+                val id = if (mw.id == 0L) resolvedIds.getOrPut(mw.uri) {
+                    (medialibrary.getMedia(mw.uri) ?: medialibrary.addMedia(mw.location, -1L))?.id ?: 0L
+                } else mw.id
+                if (id != 0L) ids[count++] = id
             }
-            playlist.append(ids)
+            playlist.append(if (count == ids.size) ids else ids.copyOf(count))
         }
         dismiss()
     }
@@ -240,11 +237,19 @@ class SavePlaylistDialog : VLCBottomSheetDialogFragment(), View.OnClickListener,
         }
     }
 
+    /**
+     * Filter out the [newTracks] already in [currentTracks], with the same criteria as [MediaWrapper.equals]:
+     * same media id or same uri. Lookups are hashed so that the cost is linear in the number of tracks.
+     */
     private fun getNonDuplicateTracks(currentTracks: Array<MediaWrapper>, newTracks: Array<MediaWrapper>): Array<MediaWrapper> {
+        val currentIds = HashSet<Long>(currentTracks.size)
+        val currentUris = HashSet<Uri>(currentTracks.size)
+        for (track in currentTracks) {
+            if (track.id != 0L) currentIds.add(track.id)
+            track.uri?.let { currentUris.add(it) }
+        }
         return newTracks.filter { newItem ->
-            currentTracks.all { currentItem ->
-                !currentItem.equals(newItem)
-            }
+            !(newItem.id != 0L && newItem.id in currentIds) && newItem.uri?.let { it !in currentUris } ?: true
         }.toTypedArray()
     }
 
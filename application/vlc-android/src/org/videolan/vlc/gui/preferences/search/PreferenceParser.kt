@@ -28,27 +28,109 @@ import android.content.Context
 import android.content.ContextWrapper
 import android.content.SharedPreferences
 import android.content.res.XmlResourceParser
+import android.os.Build
 import android.os.Parcelable
+import android.util.Log
 import androidx.annotation.XmlRes
 import kotlinx.parcelize.Parcelize
+import org.json.JSONArray
+import org.json.JSONObject
+import org.videolan.tools.AppUtils
 import org.videolan.tools.Settings
 import org.videolan.tools.wrap
 import org.videolan.vlc.R
+import java.io.File
 
 object PreferenceParser {
 
+    private const val TAG = "VLC/PreferenceParser"
+    private const val INDEX_FILE = "preferences_index.json"
+
     /**
      * Parses all the preferences available in the app.
+     * The parsed index is persisted and reused until the app is updated or the locale changes,
+     * only the current values of the list preferences are resolved each time.
      * @param context the context to be used to retrieve the preferences
      *
      * @return a list of [PreferenceItem]
      */
     fun parsePreferences(context: Context): ArrayList<PreferenceItem> {
-        val result = ArrayList<PreferenceItem>()
-        arrayOf(R.xml.preferences, R.xml.preferences_adv, R.xml.preferences_audio, R.xml.preferences_casting, R.xml.preferences_perf, R.xml.preferences_subtitles, R.xml.preferences_ui, R.xml.preferences_video).forEach {
-            result.addAll(parsePreferences(context, it))
+        val locale = if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) context.resources.configuration.locales[0] else context.resources.configuration.locale
+        // The index stores resource ids, which can change between builds sharing a version code
+        val lastUpdateTime = context.packageManager.getPackageInfo(context.packageName, 0).lastUpdateTime
+        val indexVersion = "${AppUtils.getVersionCode(context)}_${lastUpdateTime}_$locale"
+        val indexFile = File(context.cacheDir, INDEX_FILE)
+        val index = readIndex(indexFile, indexVersion) ?: ArrayList<IndexEntry>().also { index ->
+            arrayOf(R.xml.preferences, R.xml.preferences_adv, R.xml.preferences_audio, R.xml.preferences_casting, R.xml.preferences_perf, R.xml.preferences_subtitles, R.xml.preferences_ui, R.xml.preferences_video).forEach {
+                index.addAll(parsePreferences(context, it))
+            }
+            writeIndex(indexFile, indexVersion, index)
+        }
+        val englishContext by lazy(LazyThreadSafetyMode.NONE) { ContextWrapper(context).wrap("en") }
+        return index.mapTo(ArrayList(index.size)) { entry ->
+            if (entry.entriesId == -1) return@mapTo entry.item
+            //get the current value for the string substitution
+            try {
+                val item = entry.item
+                val rawValue = Settings.getInstance(context).getString(item.key, item.defaultValue) ?: ""
+                val valueIndex = context.resources.getStringArray(entry.entryValuesId).indexOf(rawValue)
+                item.copy(summary = item.summary.replace("%s", context.resources.getStringArray(entry.entriesId)[valueIndex]),
+                        summaryEng = item.summaryEng.replace("%s", englishContext.resources.getStringArray(entry.entriesId)[valueIndex]))
+            } catch (e: Exception) {
+                entry.item
+            }
+        }
+    }
+
+    /**
+     * Read the persisted preference index
+     * @param file the index file
+     * @param version the expected index version
+     *
+     * @return the index, or null if it is missing, outdated or unreadable
+     */
+    private fun readIndex(file: File, version: String): ArrayList<IndexEntry>? {
+        if (!file.exists()) return null
+        return try {
+            val json = JSONObject(file.readText())
+            if (json.getString("version") != version) return null
+            val items = json.getJSONArray("items")
+            ArrayList<IndexEntry>(items.length()).apply {
+                for (i in 0 until items.length()) {
+                    val item = items.getJSONObject(i)
+                    add(IndexEntry(PreferenceItem(item.getString("key"), item.getInt("parentScreen"), item.getString("title"), item.getString("summary"),
+                            item.getString("titleEng"), item.getString("summaryEng"), item.getString("category"), item.getString("categoryEng"),
+                            if (item.isNull("defaultValue")) null else item.getString("defaultValue")),
+                            item.getInt("entries"), item.getInt("entryValues")))
+                }
+            }
+        } catch (e: Exception) {
+            Log.w(TAG, "Unable to read the preference index", e)
+            null
+        }
+    }
+
+    private fun writeIndex(file: File, version: String, index: List<IndexEntry>) {
+        try {
+            val items = JSONArray()
+            index.forEach {
+                items.put(JSONObject()
+                        .put("key", it.item.key)
+                        .put("parentScreen", it.item.parentScreen)
+                        .put("title", it.item.title)
+                        .put("summary", it.item.summary)
+                        .put("titleEng", it.item.titleEng)
+                        .put("summaryEng", it.item.summaryEng)
+                        .put("category", it.item.category)
+                        .put("categoryEng", it.item.categoryEng)
+                        .put("defaultValue", it.item.defaultValue ?: JSONObject.NULL)
+                        .put("entries", it.entriesId)
+                        .put("entryValues", it.entryValuesId))
+            }
+            file.writeText(JSONObject().put("version", version).put("items", items).toString())
+        } catch (e: Exception) {
+            Log.w(TAG, "Unable to write the preference index", e)
         }
-        return result
     }
 
     /**
@@ -101,12 +183,12 @@ object PreferenceParser {
      * @param context the context to be used to retrieve the preferences
      * @param id the xml resource id to parse
      *
-     * @return all the parsed items in the form of a [PreferenceItem] list
+     * @return all the parsed items in the form of an [IndexEntry] list, with the list preferences values not substituted
      */
-    private fun parsePreferences(context: Context, @XmlRes id: Int): ArrayList<PreferenceItem> {
+    private fun parsePreferences(context: Context, @XmlRes id: Int): ArrayList<IndexEntry> {
         var category = ""
         var categoryEng = ""
-        val result = ArrayList<PreferenceItem>()
+        val result = ArrayList<IndexEntry>()
         val parser = context.resources.getXml(id)
         var eventType = -1
         val namespace = "http://schemas.android.com/apk/res/android"
@@ -125,22 +207,16 @@ object PreferenceParser {
                     val key = getValue(context, parser, namespace, "key")
                     val title = getValue(context, parser, namespace, "title")
                     val titleEng = getValue(englishContext, parser, namespace, "title")
-                    var summary = getValue(context, parser, namespace, "summary")
-                    var summaryEng = getValue(englishContext, parser, namespace, "summary")
+                    val summary = getValue(context, parser, namespace, "summary")
+                    val summaryEng = getValue(englishContext, parser, namespace, "summary")
                     val defaultValue = getValue(context, parser, namespace, "defaultValue")
+                    var entriesId = -1
+                    var entryValuesId = -1
                     if (summary.contains("%s") && element == "ListPreference") {
-                        //get the current value for the string substitution
-                        try {
-                            val rawValue = Settings.getInstance(context).getString(key, defaultValue) ?: ""
-                            val entriesId = parser.getAttributeResourceValue(namespace, "entries", -1)
-                            val entryValuesId = parser.getAttributeResourceValue(namespace, "entryValues", -1)
-                            val index = context.resources.getStringArray(entryValuesId).indexOf(rawValue)
-                            summary = summary.replace("%s", context.resources.getStringArray(entriesId)[index])
-                            summaryEng = summaryEng.replace("%s", englishContext.resources.getStringArray(entriesId)[index])
-                        } catch (e: Exception) {
-                        }
+                        entriesId = parser.getAttributeResourceValue(namespace, "entries", -1)
+                        entryValuesId = parser.getAttributeResourceValue(namespace, "entryValues", -1)
                     }
-                    if (key.isNotBlank()) result.add(PreferenceItem(key, id, title, summary, titleEng, summaryEng, category, categoryEng, defaultValue))
+                    if (key.isNotBlank()) result.add(IndexEntry(PreferenceItem(key, id, title, summary, titleEng, summaryEng, category, categoryEng, defaultValue), entriesId, entryValuesId))
                 }
             }
             eventType = parser.next()
@@ -171,6 +247,14 @@ object PreferenceParser {
     }
 }
 
+/**
+ * Parsed preference as stored in the preference index
+ * @param item the parsed preference, its summary may contain a %s placeholder for the current value
+ * @param entriesId the entries resource of a list preference to substitute, -1 if none
+ * @param entryValuesId the entry values resource of a list preference to substitute, -1 if none
+ */
+private class IndexEntry(val item: PreferenceItem, val entriesId: Int, val entryValuesId: Int)
+
 /**
  * Object describing a [androidx.preference.Preference] with useful values to search / display them
  */
@@ -33,6 +33,28 @@ class MediaWrapperList {
     val copy: MutableList<MediaWrapper>
         @Synchronized get() = ArrayList(internalList)
 
+    /**
+     * Copy of the media between [fromIndex] (inclusive) and [toIndex] (exclusive),
+     * bounds are clamped to the list size.
+     */
+    @Synchronized
+    fun copyRange(fromIndex: Int, toIndex: Int): MutableList<MediaWrapper> {
+        val from = fromIndex.coerceIn(0, internalList.size)
+        val to = toIndex.coerceIn(from, internalList.size)
+        return ArrayList(internalList.subList(from, to))
+    }
+
+    /**
+     * Sum of the lengths of the media between [fromIndex] (inclusive) and [toIndex] (exclusive),
+     * computed in a single pass without copying the list.
+     */
+    @Synchronized
+    fun totalLength(fromIndex: Int = 0, toIndex: Int = internalList.size): Long {
+        var total = 0L
+        for (i in fromIndex.coerceAtLeast(0) until toIndex.coerceAtMost(internalList.size)) total += internalList[i].length
+        return total
+    }
+
     val isAudioList: Boolean
         @Synchronized get() = videoCount == 0
 
@@ -8,8 +8,6 @@ import androidx.annotation.MainThread
 import androidx.core.net.toUri
 import androidx.lifecycle.MutableLiveData
 import kotlinx.coroutines.*
-import kotlinx.coroutines.channels.Channel
-import kotlinx.coroutines.channels.actor
 import org.videolan.libvlc.MediaPlayer
 import org.videolan.libvlc.RendererItem
 import org.videolan.libvlc.interfaces.IMedia
@@ -22,6 +20,7 @@ import org.videolan.tools.*
 import org.videolan.vlc.BuildConfig
 import org.videolan.vlc.PlaybackService
 import org.videolan.vlc.repository.SlaveRepository
+import org.videolan.vlc.util.ConflatingActor
 import kotlin.math.abs
 
 class PlayerController(val context: Context) : IVLCVout.Callback, MediaPlayer.EventListener, CoroutineScope {
@@ -184,6 +183,7 @@ class PlayerController(val context: Context) : IVLCVout.Callback, MediaPlayer.Ev
         player.setEventListener(null)
         if (isVideoPlaying()) player.vlcVout.detachViews()
         releaseMedia()
+        eventActor.logStats()
         launch(Dispatchers.IO) {
             if (BuildConfig.DEBUG) { // Warn if player release is blocking
                 try {
@@ -301,30 +301,32 @@ class PlayerController(val context: Context) : IVLCVout.Callback, MediaPlayer.Ev
 
     private var lastTime = 0L
     var lastPosition = 0F
-    @OptIn(ObsoleteCoroutinesApi::class)
-    private val eventActor = actor<MediaPlayer.Event>(capacity = Channel.UNLIMITED, start = CoroutineStart.UNDISPATCHED) {
-        for (event in channel) {
-            when (event.type) {
-                MediaPlayer.Event.Playing -> playbackState = PlaybackStateCompat.STATE_PLAYING
-                MediaPlayer.Event.Paused -> playbackState = PlaybackStateCompat.STATE_PAUSED
-                MediaPlayer.Event.EncounteredError -> setPlaybackStopped()
-                MediaPlayer.Event.PausableChanged -> pausable = event.pausable
-                MediaPlayer.Event.SeekableChanged -> seekable = event.seekable
-                MediaPlayer.Event.LengthChanged -> updateProgress(newLength = event.lengthChanged)
-                MediaPlayer.Event.TimeChanged -> {
-                    val time = event.timeChanged
-                    if (abs(time - lastTime) > 950L) {
-                        updateProgress(newTime = time)
-                        lastTime = time
-                    }
+    /**
+     * Player events mailbox, time, position and buffering updates superseded while the main
+     * thread is busy are conflated.
+     */
+    private val eventActor = ConflatingActor<MediaPlayer.Event>(this, "Player events", start = CoroutineStart.UNDISPATCHED,
+            conflationKey = { if (it.type in CONFLATED_EVENTS) it.type else ConflatingActor.NO_CONFLATION }) { event ->
+        when (event.type) {
+            MediaPlayer.Event.Playing -> playbackState = PlaybackStateCompat.STATE_PLAYING
+            MediaPlayer.Event.Paused -> playbackState = PlaybackStateCompat.STATE_PAUSED
+            MediaPlayer.Event.EncounteredError -> setPlaybackStopped()
+            MediaPlayer.Event.PausableChanged -> pausable = event.pausable
+            MediaPlayer.Event.SeekableChanged -> seekable = event.seekable
+            MediaPlayer.Event.LengthChanged -> updateProgress(newLength = event.lengthChanged)
+            MediaPlayer.Event.TimeChanged -> {
+                val time = event.timeChanged
+                if (abs(time - lastTime) > 950L) {
+                    updateProgress(newTime = time)
+                    lastTime = time
                 }
-                MediaPlayer.Event.PositionChanged -> {
-                    lastPosition = event.positionChanged
+            }
+            MediaPlayer.Event.PositionChanged -> {
+                lastPosition = event.positionChanged
 
-                }
             }
-            mediaplayerEventListener?.onEvent(event)
         }
+        mediaplayerEventListener?.onEvent(event)
     }
 
     @JvmOverloads
@@ -351,6 +353,8 @@ class PlayerController(val context: Context) : IVLCVout.Callback, MediaPlayer.Ev
     companion object {
         @Volatile var playbackState = PlaybackStateCompat.STATE_NONE
             private set
+
+        private val CONFLATED_EVENTS = intArrayOf(MediaPlayer.Event.TimeChanged, MediaPlayer.Event.PositionChanged, MediaPlayer.Event.Buffering)
     }
 }
 
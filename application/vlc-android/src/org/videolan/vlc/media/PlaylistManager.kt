@@ -682,26 +682,28 @@ class PlaylistManager(val service: PlaybackService) : MediaWrapperList.EventList
 
     fun previousTotalTime(): Long {
         val index = currentIndex
-        val copy = mediaList.copy
         return when {
-            copy.size == 0 || index < 0 -> {
+            mediaList.size() == 0 || index < 0 -> {
                 0
             }
             shuffling -> {
-                copy.asSequence()
-                        .filterIndexed { index, _ -> previous.contains(index) }
-                        .map { it.length }
-                        .sum()
-            }
-            else -> {
-                copy.asSequence()
-                        .take(index)
-                        .map { it.length }
-                        .sum()
+                val played = synchronized(previous) { previous.toHashSet() }
+                var total = 0L
+                for (position in played) total += mediaList.getMedia(position)?.length ?: 0L
+                total
             }
+            else -> mediaList.totalLength(toIndex = index)
         }
     }
 
+    /**
+     * Total length of the queue, up to the [stopAfter] media if set
+     */
+    fun totalTime(): Long {
+        val stopAfter = stopAfter
+        return if (stopAfter == -1) mediaList.totalLength() else mediaList.totalLength(toIndex = stopAfter + 1)
+    }
+
     /**
      * Expand the current media.
      * @return the index of the media was expanded, and -1 if no media was expanded
@@ -859,6 +861,8 @@ class PlaylistManager(val service: PlaybackService) : MediaWrapperList.EventList
 
     fun getMediaList(): List<MediaWrapper> = mediaList.copy
 
+    fun getMediaListRange(fromIndex: Int, toIndex: Int): List<MediaWrapper> = mediaList.copyRange(fromIndex, toIndex)
+
     fun setABRepeatValue(time: Long) {
         val value = abRepeat.value ?: ABRepeat()
         when {
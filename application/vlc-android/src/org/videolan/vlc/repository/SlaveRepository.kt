@@ -38,9 +38,23 @@ import org.videolan.vlc.mediadb.models.Slave
 
 class SlaveRepository(private val slaveDao:SlaveDao) : IOScopedObject() {
 
+    /**
+     * In memory copy of the slaves table, by media mrl, to spare a database query on each playback start.
+     * Writes invalidate the entry of their media, [cacheVersion] prevents a concurrent read from caching
+     * a stale result.
+     */
+    private val cache = object : LinkedHashMap<String, List<Slave>>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, List<Slave>>?) = size > CACHE_SIZE
+    }
+    @Volatile private var cacheVersion = 0
+
     fun saveSlave(mediaPath: String, type: Int, priority: Int, uriString: String): Job {
         return launch {
-            slaveDao.insert(org.videolan.vlc.mediadb.models.Slave(mediaPath, type, priority, uriString))
+            val slave = Slave(mediaPath, type, priority, uriString)
+            if (synchronized(cache) { cache[mediaPath] } == listOf(slave)) return@launch
+            invalidate(mediaPath)
+            slaveDao.insert(slave)
+            invalidate(mediaPath)
         }
     }
 
@@ -51,21 +65,28 @@ class SlaveRepository(private val slaveDao:SlaveDao) : IOScopedObject() {
     }
 
     suspend fun getSlaves(mrl: String): List<IMedia.Slave> {
-        return withContext(Dispatchers.IO) {
-            val slaves = try {
-                slaveDao.get(mrl)
+        val slaves = synchronized(cache) { cache[mrl] } ?: withContext(Dispatchers.IO) {
+            val version = cacheVersion
+            try {
+                slaveDao.get(mrl).also { synchronized(cache) { if (version == cacheVersion) cache[mrl] = it } }
             } catch (e: SQLiteException) {
-                emptyList<org.videolan.vlc.mediadb.models.Slave>()
+                emptyList<Slave>()
             }
-            val mediaSlaves = slaves.map {
-                var uri = it.uri
-                if (uri.isNotEmpty())
-                    uri = Uri.decode(it.uri)
-                IMedia.Slave(it.type, it.priority, uri)
-            }
-             mediaSlaves
+        }
+        return slaves.map {
+            var uri = it.uri
+            if (uri.isNotEmpty())
+                uri = Uri.decode(it.uri)
+            IMedia.Slave(it.type, it.priority, uri)
         }
     }
 
-    companion object : SingletonHolder<SlaveRepository, Context>({ SlaveRepository(MediaDatabase.getInstance(it).slaveDao()) })
+    private fun invalidate(mrl: String) = synchronized(cache) {
+        ++cacheVersion
+        cache.remove(mrl)
+    }
+
+    companion object : SingletonHolder<SlaveRepository, Context>({ SlaveRepository(MediaDatabase.getInstance(it).slaveDao()) }) {
+        private const val CACHE_SIZE = 64
+    }
 }
@@ -0,0 +1,115 @@
+/*****************************************************************************
+ * ConflatingActor.kt
+ *****************************************************************************
+ * Copyright © 2022 VLC authors and VideoLAN
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston MA 02110-1301, USA.
+ *****************************************************************************/
+
+package org.videolan.vlc.util
+
+import android.util.Log
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.CoroutineStart
+import kotlinx.coroutines.ObsoleteCoroutinesApi
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.channels.actor
+import org.videolan.vlc.BuildConfig
+import kotlin.coroutines.CoroutineContext
+import kotlin.coroutines.EmptyCoroutineContext
+
+/**
+ * Actor whose mailbox conflates superseded messages.
+ *
+ * Messages for which [conflationKey] returns a key other than [NO_CONFLATION] supersede the
+ * pending message with the same key instead of being queued: only the latest value is
+ * delivered, at the position of the first one. Other messages are queued in order, never
+ * dropped, and prevent conflation across them. The number of keys bounds how many conflated
+ * messages can pile up between two of them.
+ *
+ * [conflatedCount] reports how many messages were merged, [queueDepth] and [maxQueueDepth] how
+ * many are waiting. Debug builds log a warning each time the mailbox depth doubles past
+ * [DEPTH_WARNING_THRESHOLD], and [logStats] logs the counters.
+ */
+private const val TAG = "VLC/ConflatingActor"
+private const val DEPTH_WARNING_THRESHOLD = 128
+
+@OptIn(ObsoleteCoroutinesApi::class)
+class ConflatingActor<T : Any>(
+        scope: CoroutineScope,
+        private val name: String,
+        context: CoroutineContext = EmptyCoroutineContext,
+        start: CoroutineStart = CoroutineStart.DEFAULT,
+        private val conflationKey: (T) -> Int,
+        private val onMessage: suspend (T) -> Unit
+) {
+    private class Slot<T>(var value: T, val key: Int)
+
+    private val lock = Any()
+    private val pending = HashMap<Int, Slot<T>>()
+    @Volatile var conflatedCount = 0L
+        private set
+    @Volatile var queueDepth = 0
+        private set
+    @Volatile var maxQueueDepth = 0
+        private set
+    private var depthWarning = DEPTH_WARNING_THRESHOLD
+
+    private val actor = scope.actor<Slot<T>>(context, Channel.UNLIMITED, start) {
+        for (slot in channel) onMessage(take(slot))
+    }
+
+    /**
+     * Post a message without suspending.
+     *
+     * @return false if the actor is closed
+     */
+    fun trySend(message: T): Boolean = synchronized(lock) {
+        val key = conflationKey(message)
+        if (key != NO_CONFLATION) pending[key]?.let {
+            it.value = message
+            ++conflatedCount
+            return true
+        } else pending.clear()
+        val slot = Slot(message, key)
+        if (actor.trySend(slot).isSuccess) {
+            if (key != NO_CONFLATION) pending[key] = slot
+            if (++queueDepth > maxQueueDepth) {
+                maxQueueDepth = queueDepth
+                if (maxQueueDepth >= depthWarning) {
+                    if (BuildConfig.DEBUG) Log.w(TAG, "$name mailbox holds $maxQueueDepth messages")
+                    depthWarning *= 2
+                }
+            }
+            true
+        } else false
+    }
+
+    fun close() = actor.close()
+
+    fun logStats() {
+        if (BuildConfig.DEBUG) Log.d(TAG, "$name: $conflatedCount messages conflated, mailbox depth $queueDepth, max $maxQueueDepth")
+    }
+
+    private fun take(slot: Slot<T>) = synchronized(lock) {
+        if (pending[slot.key] === slot) pending.remove(slot.key)
+        --queueDepth
+        slot.value
+    }
+
+    companion object {
+        const val NO_CONFLATION = -1
+    }
+}
@@ -25,6 +25,7 @@ package org.videolan.vlc.util
 
 import android.annotation.SuppressLint
 import android.content.Context
+import android.content.res.AssetFileDescriptor
 import android.content.res.AssetManager
 import android.database.Cursor
 import android.database.sqlite.SQLiteException
@@ -58,6 +59,8 @@ import java.util.zip.ZipOutputStream
 object FileUtils {
 
     val TAG = "VLC/FileUtils"
+    private const val COPY_BUFFER_SIZE = 64 * 1024
+    private const val ASSETS_VERSION_STAMP = ".version"
 
     interface Callback {
         fun onResult(success: Boolean)
@@ -110,24 +113,55 @@ object FileUtils {
         }
     }
 
-    fun copyHrtfs(context: Context, force: Boolean) {
+    fun copyHrtfs(context: Context) {
         AppScope.launch(Dispatchers.IO) {
             val destinationFolder = context.getDir("vlc",
                     Context.MODE_PRIVATE).absolutePath + "/.share/hrtfs"
             val am = context.assets
-            copyAssetFolder(am, "hrtfs", destinationFolder, force)
+            copyVersionedAssetFolder(am, "hrtfs", destinationFolder, getAssetsVersion(context))
         }
     }
 
-    fun copyLua(context: Context, force: Boolean) {
+    fun copyLua(context: Context) {
         AppScope.launch(Dispatchers.IO) {
             val destinationFolder = context.getDir("vlc",
                     Context.MODE_PRIVATE).absolutePath + "/.share/lua"
             val am = context.assets
-            copyAssetFolder(am, "lua", destinationFolder, force)
+            copyVersionedAssetFolder(am, "lua", destinationFolder, getAssetsVersion(context))
         }
     }
 
+    /**
+     * @return the version of the bundled assets, which changes with each install or update of the
+     * app, even between builds sharing the same version code
+     */
+    private fun getAssetsVersion(context: Context): String {
+        val lastUpdateTime = context.packageManager.getPackageInfo(context.packageName, 0).lastUpdateTime
+        return "${BuildConfig.VLC_VERSION_CODE}_$lastUpdateTime"
+    }
+
+    /**
+     * Copy an asset folder, unless it was already copied for this [version] of the assets.
+     * A stamp file holding the version is written in [toPath] once the copy succeeded.
+     * On a new version, only the files whose content changed are written again.
+     */
+    @WorkerThread
+    internal fun copyVersionedAssetFolder(assetManager: AssetManager, fromAssetPath: String, toPath: String, version: String): Boolean {
+        val stamp = File(toPath, ASSETS_VERSION_STAMP)
+        try {
+            if (stamp.exists() && stamp.readText() == version) return true
+        } catch (e: IOException) {
+            Log.w(TAG, "Unable to read the $fromAssetPath assets stamp", e)
+        }
+        if (!copyAssetFolder(assetManager, fromAssetPath, toPath, true)) return false
+        try {
+            stamp.writeText(version)
+        } catch (e: IOException) {
+            Log.w(TAG, "Unable to write the $fromAssetPath assets stamp", e)
+        }
+        return true
+    }
+
     @WorkerThread
     internal fun copyAssetFolder(assetManager: AssetManager, fromAssetPath: String, toPath: String, force: Boolean): Boolean {
         try {
@@ -158,7 +192,7 @@ object FileUtils {
     @WorkerThread
     private fun copyAsset(assetManager: AssetManager, fromAssetPath: String, toPath: String, force: Boolean): Boolean {
         val destFile = File(toPath)
-        if (!force && destFile.exists()) return true
+        if (destFile.exists() && (!force || isSameContent(assetManager, fromAssetPath, destFile))) return true
         var `in`: InputStream? = null
         var out: OutputStream? = null
         try {
@@ -177,10 +211,55 @@ object FileUtils {
         }
     }
 
+    /**
+     * Compare an asset to a file, to avoid rewriting unchanged files
+     */
+    @WorkerThread
+    private fun isSameContent(assetManager: AssetManager, fromAssetPath: String, file: File): Boolean {
+        try {
+            // The length is only known for uncompressed assets
+            val assetLength = try {
+                val fd = assetManager.openFd(fromAssetPath)
+                fd.length.also { fd.close() }
+            } catch (e: IOException) {
+                AssetFileDescriptor.UNKNOWN_LENGTH
+            }
+            if (assetLength != AssetFileDescriptor.UNKNOWN_LENGTH && assetLength != file.length()) return false
+            assetManager.open(fromAssetPath).use { asset ->
+                FileInputStream(file).use { input ->
+                    val assetBuffer = ByteArray(COPY_BUFFER_SIZE)
+                    val fileBuffer = ByteArray(COPY_BUFFER_SIZE)
+                    while (true) {
+                        val read = asset.readChunk(assetBuffer)
+                        if (read != input.readChunk(fileBuffer)) return false
+                        if (read <= 0) return true
+                        for (i in 0 until read) if (assetBuffer[i] != fileBuffer[i]) return false
+                    }
+                }
+            }
+        } catch (e: IOException) {
+            return false
+        }
+    }
+
+    /**
+     * Read until [buffer] is full or the end of the stream is reached
+     * @return the number of bytes read
+     */
+    private fun InputStream.readChunk(buffer: ByteArray): Int {
+        var total = 0
+        while (total < buffer.size) {
+            val read = read(buffer, total, buffer.size - total)
+            if (read == -1) break
+            total += read
+        }
+        return total
+    }
+
     @WorkerThread
     @Throws(IOException::class)
     private fun copyFile(inputStream: InputStream, out: OutputStream) {
-        val buffer = ByteArray(1024)
+        val buffer = ByteArray(COPY_BUFFER_SIZE)
         var read = inputStream.read(buffer)
         while (read != -1) {
             out.write(buffer, 0, read)
@@ -188,6 +267,28 @@ object FileUtils {
         }
     }
 
+    /**
+     * Let the kernel transfer the bytes from [inputStream] to [out].
+     * The bytes left when the channel transfer stalls, or after [transferLimit], are copied through a buffer.
+     */
+    @WorkerThread
+    internal fun transferFile(inputStream: FileInputStream, out: FileOutputStream, transferLimit: Long = Long.MAX_VALUE) {
+        val input = inputStream.channel
+        val output = out.channel
+        val size = input.size()
+        val transferSize = size.coerceAtMost(transferLimit)
+        var position = 0L
+        while (position < transferSize) {
+            val transferred = input.transferTo(position, transferSize - position, output)
+            if (transferred <= 0) break
+            position += transferred
+        }
+        if (position < size) {
+            input.position(position)
+            copyFile(inputStream, out)
+        }
+    }
+
     @WorkerThread
     fun copyFile(src: File, dst: File): Boolean {
         var ret = true
@@ -197,19 +298,12 @@ object FileUtils {
             for (file in filesList)
                 ret = ret and copyFile(file, File(dst, file.name))
         } else if (src.isFile) {
-            var inputStream: InputStream? = null
-            var out: OutputStream? = null
+            var inputStream: FileInputStream? = null
+            var out: FileOutputStream? = null
             try {
-                inputStream = BufferedInputStream(FileInputStream(src))
-                out = BufferedOutputStream(FileOutputStream(dst))
-
-                // Transfer bytes from in to out
-                val buf = ByteArray(1024)
-                var len = inputStream.read(buf)
-                while (len > 0) {
-                    out.write(buf, 0, len)
-                    len = inputStream.read(buf)
-                }
+                inputStream = FileInputStream(src)
+                out = FileOutputStream(dst)
+                transferFile(inputStream, out)
                 return true
             } catch (ignored: IOException) {
             } finally {
@@ -355,12 +449,7 @@ object FileUtils {
                         inputStream = ctx.contentResolver.openInputStream(data)
                         if (inputStream == null) return data
                         os = FileOutputStream(AndroidDevices.EXTERNAL_PUBLIC_DIRECTORY + "/Download/" + filename)
-                        val buffer = ByteArray(1024)
-                        var bytesRead = inputStream.read(buffer)
-                        while (bytesRead >= 0) {
-                            os.write(buffer, 0, bytesRead)
-                            bytesRead = inputStream.read(buffer)
-                        }
+                        copyFile(inputStream, os)
                         uri = AndroidUtil.PathToUri(AndroidDevices.EXTERNAL_PUBLIC_DIRECTORY + "/Download/" + filename)
                     }
                 } catch (e: Exception) {
@@ -445,12 +534,9 @@ object FileUtils {
             fis = FileInputStream(path)
             zis = ZipInputStream(BufferedInputStream(fis))
             var ze = zis.nextEntry
+            val buffer = ByteArray(COPY_BUFFER_SIZE)
 
             while (ze != null) {
-                val baos = ByteArrayOutputStream()
-                val buffer = ByteArray(1024)
-                var count = zis.read(buffer)
-
                 val filename = ze.name.replace('/', ' ')
                 if (filename.endsWith(".nfo")) {
                     zis.closeEntry()
@@ -458,19 +544,17 @@ object FileUtils {
                     continue
                 }
                 val fileToUnzip = File(unzipDirectory, filename)
-                val fout = FileOutputStream(fileToUnzip)
 
-                // reading and writing
-                while (count != -1) {
-                    baos.write(buffer, 0, count)
-                    val bytes = baos.toByteArray()
-                    fout.write(bytes)
-                    baos.reset()
-                    count = zis.read(buffer)
+                // stream the entry to its file
+                FileOutputStream(fileToUnzip).use { fout ->
+                    var count = zis.read(buffer)
+                    while (count != -1) {
+                        fout.write(buffer, 0, count)
+                        count = zis.read(buffer)
+                    }
                 }
 
                 unzippedFiles.add(fileToUnzip.absolutePath)
-                fout.close()
                 zis.closeEntry()
                 ze = zis.nextEntry
             }
@@ -481,7 +565,7 @@ object FileUtils {
         unzippedFiles
     }
 
-    const val BUFFER = 2048
+    const val BUFFER = 64 * 1024
     fun zip(files: Array<String>, zipFileName: String) {
         try {
             var origin: BufferedInputStream? = null
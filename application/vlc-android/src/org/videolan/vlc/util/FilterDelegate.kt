@@ -10,6 +10,7 @@ import org.videolan.vlc.media.MediaUtils
 
 open class FilterDelegate<T : MediaLibraryItem>(protected val dataset: MutableLiveData<out List<T>>) {
     private var sourceSet: List<T>? = null
+    private var index: FilterIndex<T>? = null
 
     protected fun initSource() : List<T>? {
         if (sourceSet === null) sourceSet = (dataset.value)
@@ -20,19 +21,28 @@ open class FilterDelegate<T : MediaLibraryItem>(protected val dataset: MutableLi
 
     protected open suspend fun filteringJob(charSequence: CharSequence?) : MutableList<T>? {
         if (charSequence !== null) initSource()?.let {
-            return withContext(Dispatchers.Default) { mutableListOf<T>().apply {
-                val queryStrings = charSequence.trim().toString().split(" ").filter { it.length > 2 }
-                for (item in it) for (query in queryStrings)
-                    if (item.title.contains(query, true)) {
-                        this.add(item)
-                        break
-                    }
-                }
+            return withContext(Dispatchers.Default) {
+                val index = getIndex(it)
+                index.itemsAt(index.search(getQueryStrings(charSequence)))
             }
         }
         return null
     }
 
+    /**
+     * Split the query in the strings to look for, an item matches if its searchable text contains any of them
+     * @return the lowercase query strings
+     */
+    protected open fun getQueryStrings(charSequence: CharSequence) = charSequence.trim().toString().split(" ").filter { it.length > 2 }.map { it.toLowerCase() }
+
+    /**
+     * @return the lowercase text to search in for this item
+     */
+    protected open fun getSearchableText(item: T) = item.title.toLowerCase()
+
+    private fun getIndex(source: List<T>) = index?.takeIf { it.items === source && it.size == source.size }
+            ?: FilterIndex(source, Array(source.size) { getSearchableText(source[it]) }).also { index = it }
+
     private fun publish(list: MutableList<T>?) {
         sourceSet?.let {
             if (list !== null)
@@ -40,39 +50,73 @@ open class FilterDelegate<T : MediaLibraryItem>(protected val dataset: MutableLi
             else {
                 dataset.value = it
                 sourceSet = null
+                index = null
             }
         }
     }
 }
 
-class PlaylistFilterDelegate(dataset: MutableLiveData<out List<MediaWrapper>>) : FilterDelegate<MediaWrapper>(dataset) {
+private const val MAX_CACHED_RESULTS = 16
 
-    override suspend fun filteringJob(charSequence: CharSequence?): MutableList<MediaWrapper>? {
-        if (charSequence !== null) initSource()?.let { list ->
-            return withContext(Dispatchers.Default) { mutableListOf<MediaWrapper>().apply {
-                val queryStrings = charSequence.trim().toString().split(" ").asSequence().filter { it.isNotEmpty() }.map { it.toLowerCase() }.toList()
-                for (media in list) {
-                    val title = MediaUtils.getMediaTitle(media).toLowerCase()
-                    val location = media.location.toLowerCase()
-                    val artist = MediaUtils.getMediaArtist(AppContextProvider.appContext, media).toLowerCase()
-                    val albumArtist = MediaUtils.getMediaAlbumArtist(AppContextProvider.appContext, media).toLowerCase()
-                    val album = MediaUtils.getMediaAlbum(AppContextProvider.appContext, media).toLowerCase()
-                    val genre = MediaUtils.getMediaGenre(AppContextProvider.appContext, media).toLowerCase()
-                    for (queryString in queryStrings) {
-                        if (title.contains(queryString) ||
-                                location.contains(queryString) ||
-                                artist.contains(queryString) ||
-                                albumArtist.contains(queryString) ||
-                                album.contains(queryString) ||
-                                genre.contains(queryString)) {
-                            this.add(media)
-                            break
-                        }
-                    }
-                }
-            }
-            }
+/**
+ * Normalized searchable texts of the filtered items, built once for all the queries on a source.
+ * Results of the latest queries are kept to answer backspaces and to narrow refined queries.
+ */
+private class FilterIndex<T>(val items: List<T>, private val texts: Array<String>) {
+    val size = texts.size
+
+    private val results = object : LinkedHashMap<List<String>, IntArray>(MAX_CACHED_RESULTS, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<List<String>, IntArray>?) = size > MAX_CACHED_RESULTS
+    }
+
+    /**
+     * @return the positions of the items containing any of the [queryStrings]
+     */
+    fun search(queryStrings: List<String>) = results[queryStrings] ?: search(queryStrings, getCandidates(queryStrings)).also { results[queryStrings] = it }
+
+    /**
+     * An item matching [queryStrings] also matches a previous query if each of the query strings
+     * contains one of the previous query strings, so only the previous result has to be searched.
+     * @return the smallest previous result containing all the items matching [queryStrings], null if there is none
+     */
+    private fun getCandidates(queryStrings: List<String>): IntArray? {
+        var candidates: IntArray? = null
+        for ((previousQuery, previousResult) in results) {
+            if (candidates != null && previousResult.size >= candidates.size) continue
+            if (previousQuery.isNotEmpty() && queryStrings.all { query -> previousQuery.any { query.contains(it) } }) candidates = previousResult
         }
-        return null
+        return candidates
     }
-}
\ No newline at end of file
+
+    private fun search(queryStrings: List<String>, candidates: IntArray?): IntArray {
+        val positions = IntArray(candidates?.size ?: size)
+        var count = 0
+        if (queryStrings.isNotEmpty()) for (i in positions.indices) {
+            val position = candidates?.get(i) ?: i
+            if (matches(texts[position], queryStrings)) positions[count++] = position
+        }
+        return positions.copyOf(count)
+    }
+
+    fun itemsAt(positions: IntArray) = positions.mapTo(ArrayList(positions.size)) { items[it] }
+
+    private fun matches(text: String, queryStrings: List<String>): Boolean {
+        for (query in queryStrings) if (text.contains(query)) return true
+        return false
+    }
+}
+
+class PlaylistFilterDelegate(dataset: MutableLiveData<out List<MediaWrapper>>) : FilterDelegate<MediaWrapper>(dataset) {
+
+    override fun getQueryStrings(charSequence: CharSequence) = charSequence.trim().toString().split(" ").asSequence().filter { it.isNotEmpty() }.map { it.toLowerCase() }.toList()
+
+    override fun getSearchableText(item: MediaWrapper) = buildString {
+        // Fields are separated so that a query can't match across two of them
+        append(MediaUtils.getMediaTitle(item)).append('\n')
+        append(item.location).append('\n')
+        append(MediaUtils.getMediaArtist(AppContextProvider.appContext, item)).append('\n')
+        append(MediaUtils.getMediaAlbumArtist(AppContextProvider.appContext, item)).append('\n')
+        append(MediaUtils.getMediaAlbum(AppContextProvider.appContext, item)).append('\n')
+        append(MediaUtils.getMediaGenre(AppContextProvider.appContext, item))
+    }.toLowerCase()
+}
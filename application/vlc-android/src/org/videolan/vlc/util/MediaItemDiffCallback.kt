@@ -1,5 +1,6 @@
 package org.videolan.vlc.util
 
+import org.videolan.medialibrary.interfaces.media.MediaWrapper
 import org.videolan.medialibrary.media.MediaLibraryItem
 import org.videolan.vlc.gui.DiffUtilAdapter
 
@@ -21,10 +22,20 @@ class MediaItemDiffCallback<T : MediaLibraryItem> : DiffUtilAdapter.DiffCallback
     }
 
     override fun areContentsTheSame(oldItemPosition: Int, newItemPosition: Int): Boolean {
-        return true
+        return areContentsTheSame(oldList[oldItemPosition], newList[newItemPosition])
     }
 
     companion object {
         private val TAG = "MediaItemDiffCallback"
+
+        /**
+         * Compare the displayed values of two items, cheap enough to be called for each item of a diff
+         */
+        fun areContentsTheSame(oldItem: MediaLibraryItem, newItem: MediaLibraryItem): Boolean {
+            if (oldItem === newItem) return true
+            if (oldItem.title != newItem.title || oldItem.artworkMrl != newItem.artworkMrl) return false
+            return oldItem !is MediaWrapper || newItem !is MediaWrapper
+                    || oldItem.time == newItem.time && oldItem.length == newItem.length && oldItem.seen == newItem.seen
+        }
     }
 }
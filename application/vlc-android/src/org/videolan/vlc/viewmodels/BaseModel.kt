@@ -29,6 +29,7 @@ import kotlinx.coroutines.channels.Channel
 import kotlinx.coroutines.channels.actor
 import kotlinx.coroutines.isActive
 import kotlinx.coroutines.withContext
+import org.videolan.medialibrary.interfaces.media.MediaWrapper
 import org.videolan.medialibrary.media.MediaLibraryItem
 import org.videolan.tools.CoroutineContextProvider
 import org.videolan.tools.livedata.LiveDataset
@@ -94,7 +95,13 @@ abstract class BaseModel<T : MediaLibraryItem>(context: Context, val coroutineCo
 
     protected open suspend fun addMedia(media: T) = dataset.add(media)
 
-    open suspend fun addMedia(mediaList: List<T>) = dataset.add(mediaList)
+    open suspend fun addMedia(mediaList: List<T>) = dataset.add(mediaList, ::getItemKeys)
+
+    /**
+     * Keys matching [MediaLibraryItem.equals]: media are the same if they share a library id or
+     * an uri, other items if they share an id.
+     */
+    private fun getItemKeys(item: T): Array<out Any?> = if (item is MediaWrapper) arrayOf(item.id.takeIf { it != 0L }, item.uri) else arrayOf(item.id)
 
     protected open suspend fun updateItems(mediaList: List<T>) {
         dataset.value = withContext(coroutineContextProvider.Default) {
@@ -42,12 +42,15 @@ import org.videolan.vlc.R
 import org.videolan.vlc.media.PlaylistManager
 import org.videolan.vlc.util.EmptyPBSCallback
 import org.videolan.vlc.util.PlaylistFilterDelegate
+import java.util.*
 
 class PlaylistModel : ViewModel(), PlaybackService.Callback by EmptyPBSCallback {
 
     var service: PlaybackService? = null
     val dataset = LiveDataset<MediaWrapper>()
     private var originalDataset : MutableList<MediaWrapper>? = null
+    private var positionsIndex : Map<MediaWrapper, Int>? = null
+    private var indexedList : List<MediaWrapper>? = null
     val selection : Int
         get() = if (filtering) -1 else service?.playlistManager?.currentIndex ?: -1
     private var filtering = false
@@ -123,14 +126,30 @@ class PlaylistModel : ViewModel(), PlaybackService.Callback by EmptyPBSCallback
     fun getPlaylistPosition(position: Int, media: MediaWrapper): Int {
         val list = originalDataset ?: dataset.value
         if (position in 0 until list.size && list[position] == media) return position
-        else {
-            for ((index, item) in list.withIndex()) if (item == media) {
-                return index
-            }
+        getPositionsIndex(list)[media]?.let { return it }
+        for ((index, item) in list.withIndex()) if (item == media) {
+            return index
         }
         return -1
     }
 
+    /**
+     * Index of the queue entries by identity, built once for each new queue list
+     * so that looking up an entry does not scan the queue.
+     * Building it costs one pass over the list, on the first lookup missing the position hint
+     * after a queue change. It is not updated incrementally: each insert, move or removal
+     * already makes [update] copy the whole queue, so the rebuild doesn't change the cost of
+     * a mutation, and lookups between two mutations stay constant time.
+     */
+    private fun getPositionsIndex(list: List<MediaWrapper>): Map<MediaWrapper, Int> {
+        positionsIndex?.let { if (indexedList === list) return it }
+        return IdentityHashMap<MediaWrapper, Int>(list.size).also {
+            for ((index, item) in list.withIndex()) if (!it.containsKey(item)) it[item] = index
+            positionsIndex = it
+            indexedList = list
+        }
+    }
+
     fun stopAfter(position: Int) {
         service?.playlistManager?.stopAfter = position
     }
@@ -243,16 +262,7 @@ class PlaylistModel : ViewModel(), PlaybackService.Callback by EmptyPBSCallback
         }
     }
 
-    fun getTotalTime(): Long {
-        val mediaList = medias ?: return 0L
-        return mediaList.asSequence()
-            .map {
-                val stopAfter = service?.playlistManager?.stopAfter
-                if (stopAfter == null || stopAfter == -1 || mediaList.indexOf(it) <= stopAfter)
-                    it.length else 0L
-            }
-            .sum()
-    }
+    fun getTotalTime() = service?.playlistManager?.totalTime() ?: 0L
 
     companion object {
         fun get(fragment: Fragment) = ViewModelProvider(fragment.requireActivity()).get(PlaylistModel::class.java)
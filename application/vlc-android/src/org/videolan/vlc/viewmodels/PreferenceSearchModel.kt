@@ -41,12 +41,16 @@ class PreferenceSearchModel(context: Context) : ViewModel() {
     val dataset = LiveDataset<PreferenceItem>()
     val filtered = LiveDataset<PreferenceItem>()
     val showTranslations= MutableLiveData<Boolean>()
+    private var searchEntries = emptyList<SearchEntry>()
 
     init {
         viewModelScope.launch {
-            dataset.value = withContext(Dispatchers.IO) {
-                PreferenceParser.parsePreferences(context)
+            val (items, entries) = withContext(Dispatchers.IO) {
+                val items = PreferenceParser.parsePreferences(context)
+                items to items.map { SearchEntry(it) }
             }
+            searchEntries = entries
+            dataset.value = items
         }
         showTranslations.value = false
     }
@@ -63,37 +67,48 @@ class PreferenceSearchModel(context: Context) : ViewModel() {
      * @param query the query used to filter
      */
     fun filter(query: String) {
-        if (query.isBlank())
+        if (query.isBlank()) {
             filtered.value = arrayListOf()
-        else
-            filtered.value = dataset.getList().filter {
-                        getTitle(it).toLowerCase(Locale.getDefault()).contains(query)
-                        || getSummary(it).toLowerCase(Locale.getDefault()).contains(query)
-            }.sortedWith { i0, i1 ->
-                score(i1, query) - score(i0, query)
-            }.toMutableList()
+            return
+        }
+        val translated = showTranslations.value == true
+        val wordQuery = if (' ' in query) null else " $query"
+        val results = ArrayList<Pair<PreferenceItem, Int>>()
+        for (entry in searchEntries) {
+            val score = if (translated) score(entry.titleEng, entry.summaryEng, query, wordQuery) else score(entry.title, entry.summary, query, wordQuery)
+            if (score > 0) results.add(entry.item to score)
+        }
+        results.sortByDescending { it.second }
+        filtered.value = results.mapTo(ArrayList(results.size)) { it.first }
     }
 
     fun getSummary(item: PreferenceItem)= if (showTranslations.value == true) item.summaryEng else item.summary
     fun getTitle(item: PreferenceItem)= if (showTranslations.value == true) item.titleEng else item.title
 
     /**
-     * Determinate a score for [item] to sort the results for a [query]:
-     * - Having a word starting with [query] in [item] title grants 1000 points
-     * - Having a word starting with [query] in [item] description grants 100 points
-     * - [item] title contains [query] grants 10 points
+     * Determinate a score for an item to sort the results for a [query]:
+     * - Having a word starting with [query] in the item title grants 1000 points
+     * - Having a word starting with [query] in the item description grants 100 points
+     * - The item title contains [query] grants 10 points
+     * - The item description contains [query] grants 1 point
      *
-     * @param item: the item to calculate to score for
+     * @param title: the lowercased title of the item
+     * @param summary: the lowercased description of the item
      * @param query: the query used to calculate the score
+     * @param wordQuery: the query preceded by a space, null if words cannot start with the query
      *
-     * @return a score
+     * @return a score, 0 if the item does not match
      */
-    private fun score(item: PreferenceItem, query: String): Int {
+    private fun score(title: String, summary: String, query: String, wordQuery: String?): Int {
         var score = 0
-        if (getSummary(item).toLowerCase(Locale.getDefault()).contains(query)) score += 1
-        if (getTitle(item).toLowerCase(Locale.getDefault()).contains(query)) score += 10
-        if (getSummary(item).toLowerCase(Locale.getDefault()).split(" ").any { it.startsWith(query) }) score += 100
-        if (getTitle(item).toLowerCase(Locale.getDefault()).split(" ").any { it.startsWith(query) }) score += 1000
+        if (summary.contains(query)) {
+            score += 1
+            if (wordQuery != null && (summary.startsWith(query) || summary.contains(wordQuery))) score += 100
+        }
+        if (title.contains(query)) {
+            score += 10
+            if (wordQuery != null && (title.startsWith(query) || title.contains(wordQuery))) score += 1000
+        }
         return score
     }
 
@@ -101,4 +116,14 @@ class PreferenceSearchModel(context: Context) : ViewModel() {
         showTranslations.value = showTranslations.value == false
         filter(query)
     }
+
+    /**
+     * Searchable text of a [PreferenceItem], lowercased once
+     */
+    private class SearchEntry(val item: PreferenceItem) {
+        val title = item.title.lowercase(Locale.getDefault())
+        val summary = item.summary.lowercase(Locale.getDefault())
+        val titleEng = item.titleEng.lowercase(Locale.getDefault())
+        val summaryEng = item.summaryEng.lowercase(Locale.getDefault())
+    }
 }
@@ -31,6 +31,7 @@ import org.junit.Test
 import org.junit.runner.RunWith
 import org.mockito.ArgumentMatchers.anyString
 import org.mockito.Mockito.`when`
+import org.mockito.Mockito.times
 import org.mockito.Mockito.verify
 import org.powermock.api.mockito.PowerMockito
 import org.powermock.core.classloader.annotations.PrepareForTest
@@ -78,4 +79,30 @@ class SlaveRepositoryTest {
         assertThat(slave.type, `is`(fakeSlave.type))
         assertThat(slave.priority, `is`(fakeSlave.priority))
     }
+
+    @Test fun getSlavesTwice_daoShouldBeQueriedOnce() = runBlocking {
+        val fakeSlave = TestUtil.createSubtitleSlavesForMedia("foo.mkv", 1)[0]
+        PowerMockito.mockStatic(Uri::class.java)
+        PowerMockito.`when`<Any>(Uri::class.java, "decode", anyString()).thenAnswer { it.arguments[0] as String }
+        `when`(slaveDao.get(fakeSlave.mediaPath)).thenReturn(listOf(fakeSlave))
+
+        slaveRepository.getSlaves(fakeSlave.mediaPath)
+        val slave = slaveRepository.getSlaves(fakeSlave.mediaPath)[0]
+        verify(slaveDao, times(1)).get(fakeSlave.mediaPath)
+        assertThat(slave.uri, `is`(fakeSlave.uri))
+    }
+
+    @Test fun saveSlaveAfterGet_getSlavesShouldQueryDaoAgain() = runBlocking {
+        val fakeSlave = TestUtil.createSubtitleSlavesForMedia("foo.mkv", 1)[0]
+        PowerMockito.mockStatic(Uri::class.java)
+        PowerMockito.`when`<Any>(Uri::class.java, "decode", anyString()).thenAnswer { it.arguments[0] as String }
+        `when`(slaveDao.get(fakeSlave.mediaPath)).thenReturn(emptyList())
+
+        assertThat(slaveRepository.getSlaves(fakeSlave.mediaPath).size, `is`(0))
+        slaveRepository.saveSlave(fakeSlave.mediaPath, fakeSlave.type, fakeSlave.priority, fakeSlave.uri).join()
+        `when`(slaveDao.get(fakeSlave.mediaPath)).thenReturn(listOf(fakeSlave))
+
+        assertThat(slaveRepository.getSlaves(fakeSlave.mediaPath).size, `is`(1))
+        verify(slaveDao, times(2)).get(fakeSlave.mediaPath)
+    }
 }
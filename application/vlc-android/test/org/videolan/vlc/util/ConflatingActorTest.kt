@@ -0,0 +1,72 @@
+package org.videolan.vlc.util
+
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.*
+import org.junit.Test
+import org.videolan.vlc.BaseTest
+
+class ConflatingActorTest : BaseTest() {
+
+    private fun timeKey(message: String) = if (message.startsWith("time")) 1 else ConflatingActor.NO_CONFLATION
+
+    @Test
+    fun withConsecutiveConflatedMessages_onlyLatestShouldBeDelivered() {
+        val received = mutableListOf<String>()
+        lateinit var actor: ConflatingActor<String>
+        runBlocking {
+            actor = ConflatingActor(this, "test", conflationKey = ::timeKey) { received.add(it) }
+            for (i in 0 until 5) assertTrue(actor.trySend("time$i"))
+            actor.close()
+        }
+        assertEquals(listOf("time4"), received)
+        assertEquals(4L, actor.conflatedCount)
+    }
+
+    @Test
+    fun withInterleavedMessages_orderShouldBePreserved() {
+        val received = mutableListOf<String>()
+        runBlocking {
+            val actor = ConflatingActor(this, "test", conflationKey = ::timeKey) { received.add(it) }
+            actor.trySend("time0")
+            actor.trySend("time1")
+            actor.trySend("playing")
+            actor.trySend("time2")
+            actor.close()
+        }
+        assertEquals(listOf("time1", "playing", "time2"), received)
+    }
+
+    @Test
+    fun withManyPendingMessages_unconflatedOnesShouldAllBeDelivered() {
+        val received = mutableListOf<String>()
+        val expected = mutableListOf<String>()
+        lateinit var actor: ConflatingActor<String>
+        runBlocking {
+            actor = ConflatingActor(this, "test", conflationKey = ::timeKey) { received.add(it) }
+            for (i in 0 until 1000) {
+                assertTrue(actor.trySend("time$i"))
+                assertTrue(actor.trySend("time${i}bis"))
+                assertTrue(actor.trySend("event$i"))
+                expected.add("time${i}bis")
+                expected.add("event$i")
+            }
+            actor.close()
+        }
+        assertEquals(expected, received)
+        assertEquals(1000L, actor.conflatedCount)
+        assertEquals(2000, actor.maxQueueDepth)
+        assertEquals(0, actor.queueDepth)
+    }
+
+    @Test
+    fun withClosedActor_messagesShouldBeRejected() {
+        val received = mutableListOf<String>()
+        runBlocking {
+            val actor = ConflatingActor(this, "test", conflationKey = ::timeKey) { received.add(it) }
+            actor.close()
+            assertFalse(actor.trySend("stopped"))
+            assertFalse(actor.trySend("time0"))
+        }
+        assertTrue(received.isEmpty())
+    }
+}
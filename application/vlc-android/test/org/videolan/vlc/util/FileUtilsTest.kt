@@ -0,0 +1,150 @@
+package org.videolan.vlc.util
+
+import android.content.res.AssetManager
+import io.mockk.clearMocks
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.verify
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Ignore
+import org.junit.Test
+import org.videolan.vlc.BaseTest
+import java.io.ByteArrayInputStream
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.nio.file.Files
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+import kotlin.random.Random
+
+class FileUtilsTest : BaseTest() {
+    private val tempDir: File = Files.createTempDirectory("fileutils").toFile()
+
+    @After
+    fun cleanUp() {
+        tempDir.deleteRecursively()
+    }
+
+    @Test
+    fun whenCopyingFile_contentShouldBeTheSame() {
+        val src = File(tempDir, "src.bin").apply { writeBytes(Random(42).nextBytes(300 * 1024 + 17)) }
+        val dst = File(tempDir, "dst.bin")
+        assertTrue(FileUtils.copyFile(src, dst))
+        assertArrayEquals(src.readBytes(), dst.readBytes())
+    }
+
+    @Test
+    fun whenTransferringFile_channelTransferShouldCopyAllBytes() {
+        val src = File(tempDir, "src.bin").apply { writeBytes(Random(42).nextBytes(300 * 1024 + 17)) }
+        val dst = File(tempDir, "dst.bin")
+        FileInputStream(src).use { input -> FileOutputStream(dst).use { FileUtils.transferFile(input, it) } }
+        assertArrayEquals(src.readBytes(), dst.readBytes())
+    }
+
+    @Test
+    fun whenChannelTransferStops_remainingBytesShouldBeCopiedByStream() {
+        val src = File(tempDir, "src.bin").apply { writeBytes(Random(42).nextBytes(300 * 1024 + 17)) }
+        val partial = File(tempDir, "partial.bin")
+        FileInputStream(src).use { input -> FileOutputStream(partial).use { FileUtils.transferFile(input, it, 100 * 1024 + 3) } }
+        assertArrayEquals(src.readBytes(), partial.readBytes())
+        val streamed = File(tempDir, "streamed.bin")
+        FileInputStream(src).use { input -> FileOutputStream(streamed).use { FileUtils.transferFile(input, it, 0) } }
+        assertArrayEquals(src.readBytes(), streamed.readBytes())
+    }
+
+    @Test
+    fun whenCopyingDirectory_allFilesShouldBeCopied() {
+        val src = File(tempDir, "src").apply { mkdirs() }
+        File(src, "a.txt").writeText("a")
+        File(src, "sub").mkdirs()
+        File(src, "sub/b.txt").writeText("b")
+        val dst = File(tempDir, "dst")
+        assertTrue(FileUtils.copyFile(src, dst))
+        assertEquals("a", File(dst, "a.txt").readText())
+        assertEquals("b", File(dst, "sub/b.txt").readText())
+    }
+
+    @Test
+    fun whenUnpackingZip_entriesShouldBeExtractedExceptNfo() = runBlocking {
+        val content = Random(42).nextBytes(200 * 1024)
+        val zip = File(tempDir, "subs.zip")
+        ZipOutputStream(zip.outputStream()).use { out ->
+            out.putNextEntry(ZipEntry("movie.srt"))
+            out.write(content)
+            out.putNextEntry(ZipEntry("info.nfo"))
+            out.write("nfo".toByteArray())
+        }
+        val unzipped = FileUtils.unpackZip(zip.path, File(tempDir, "out").path)
+        assertEquals(1, unzipped.size)
+        assertArrayEquals(content, File(unzipped[0]).readBytes())
+    }
+
+    @Test
+    @Ignore("Benchmark writing 512 MB to disk, run it manually")
+    fun withLargeFile_copyThroughputShouldBeReported() {
+        val size = 256L * 1024 * 1024
+        val src = File(tempDir, "large.bin")
+        RandomAccessFile(src, "rw").use { file ->
+            val chunk = Random(42).nextBytes(1024 * 1024)
+            while (file.length() < size) file.write(chunk)
+        }
+        val dst = File(tempDir, "large_copy.bin")
+        val start = System.nanoTime()
+        assertTrue(FileUtils.copyFile(src, dst))
+        val elapsed = System.nanoTime() - start
+        assertEquals(src.length(), dst.length())
+        println("Copied ${size / (1024 * 1024)} MB in ${elapsed / 1000000} ms: ${size * 1000 / elapsed} MB/s")
+    }
+
+    private fun mockAssets(files: Map<String, ByteArray>): AssetManager = mockk {
+        every { list("lua") } answers { files.keys.toTypedArray() }
+        every { open(any()) } answers { ByteArrayInputStream(files.getValue(firstArg<String>().removePrefix("lua/"))) }
+        every { openFd(any()) } throws IOException("compressed asset")
+    }
+
+    @Test
+    fun withNewAssetsVersion_assetsShouldBeCopiedAndStamped() {
+        val assets = mockAssets(mapOf("a.lua" to "a".toByteArray(), "b.lua" to "b".toByteArray()))
+        val dst = File(tempDir, "lua")
+        assertTrue(FileUtils.copyVersionedAssetFolder(assets, "lua", dst.path, "1_100"))
+        assertEquals("a", File(dst, "a.lua").readText())
+        assertEquals("b", File(dst, "b.lua").readText())
+        assertEquals("1_100", File(dst, ".version").readText())
+    }
+
+    @Test
+    fun withSameAssetsVersion_copyShouldBeSkipped() {
+        val assets = mockAssets(mapOf("a.lua" to "a".toByteArray()))
+        val dst = File(tempDir, "lua")
+        assertTrue(FileUtils.copyVersionedAssetFolder(assets, "lua", dst.path, "1_100"))
+        File(dst, "a.lua").writeText("local change")
+        clearMocks(assets, answers = false)
+        assertTrue(FileUtils.copyVersionedAssetFolder(assets, "lua", dst.path, "1_100"))
+        verify(exactly = 0) { assets.list(any()) }
+        verify(exactly = 0) { assets.open(any()) }
+        assertEquals("local change", File(dst, "a.lua").readText())
+    }
+
+    @Test
+    fun withOtherAssetsVersion_onlyChangedAssetsShouldBeRewritten() {
+        val files = mutableMapOf("a.lua" to "a".toByteArray(), "b.lua" to "b".toByteArray())
+        val assets = mockAssets(files)
+        val dst = File(tempDir, "lua")
+        assertTrue(FileUtils.copyVersionedAssetFolder(assets, "lua", dst.path, "1_100"))
+        val unchanged = File(dst, "a.lua").apply { setLastModified(1000L) }
+        files["b.lua"] = "new b".toByteArray()
+        // Same version code, but the app was updated
+        assertTrue(FileUtils.copyVersionedAssetFolder(assets, "lua", dst.path, "1_200"))
+        assertEquals(1000L, unchanged.lastModified())
+        assertEquals("a", unchanged.readText())
+        assertEquals("new b", File(dst, "b.lua").readText())
+        assertEquals("1_200", File(dst, ".version").readText())
+    }
+}
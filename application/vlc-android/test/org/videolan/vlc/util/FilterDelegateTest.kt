@@ -0,0 +1,122 @@
+package org.videolan.vlc.util
+
+import androidx.lifecycle.MutableLiveData
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertEquals
+import org.junit.Ignore
+import org.junit.Test
+import org.videolan.medialibrary.interfaces.media.MediaWrapper
+import org.videolan.medialibrary.media.MediaLibraryItem
+import org.videolan.medialibrary.stubs.StubDataSource
+import org.videolan.vlc.BaseTest
+
+class FilterDelegateTest : BaseTest() {
+    private val dataSource: StubDataSource = StubDataSource.getInstance()
+
+    override fun beforeTest() {
+        super.beforeTest()
+        dataSource.resetData()
+    }
+
+    private fun createDataset(vararg titles: String) = MutableLiveData<List<MediaLibraryItem>>(titles.map { dataSource.createFolder(it) })
+
+    @Test
+    fun withMatchingQuery_onlyMatchingItemsShouldBeKept() = runBlocking {
+        val dataset = createDataset("Holiday", "Summer holidays", "Winter", "Spring")
+        FilterDelegate(dataset).filter("HOLI")
+        assertEquals(listOf("Holiday", "Summer holidays"), dataset.value!!.map { it.title })
+    }
+
+    @Test
+    fun withSeveralQueryStrings_itemsMatchingAnyShouldBeKept() = runBlocking {
+        val dataset = createDataset("Holiday", "Summer holidays", "Winter", "Spring")
+        FilterDelegate(dataset).filter("win spr")
+        assertEquals(listOf("Winter", "Spring"), dataset.value!!.map { it.title })
+    }
+
+    @Test
+    fun withSuccessiveQueries_resultsShouldMatchEachQuery() = runBlocking {
+        val dataset = createDataset("Holiday", "Summer holidays", "Winter", "Spring")
+        val delegate = FilterDelegate(dataset)
+        delegate.filter("hol")
+        delegate.filter("holidays")
+        assertEquals(listOf("Summer holidays"), dataset.value!!.map { it.title })
+        delegate.filter("holidays spr")
+        assertEquals(listOf("Summer holidays", "Spring"), dataset.value!!.map { it.title })
+        delegate.filter("hol")
+        assertEquals(listOf("Holiday", "Summer holidays"), dataset.value!!.map { it.title })
+    }
+
+    @Test
+    fun withShortQueryStrings_resultShouldBeEmpty() = runBlocking {
+        val dataset = createDataset("Holiday", "Winter")
+        FilterDelegate(dataset).filter("ho")
+        assertEquals(0, dataset.value!!.size)
+    }
+
+    @Test
+    fun withNullQuery_sourceShouldBeRestored() = runBlocking {
+        val dataset = createDataset("Holiday", "Winter")
+        val source = dataset.value
+        val delegate = FilterDelegate(dataset)
+        delegate.filter("win")
+        delegate.filter(null)
+        assertEquals(source, dataset.value)
+    }
+
+    private fun createPlaylist(vararg titleAndArtists: Pair<String, String>) = MutableLiveData<List<MediaWrapper>>(titleAndArtists.map { (title, artist) ->
+        dataSource.addMediaWrapper(title, MediaWrapper.TYPE_AUDIO).apply { setArtist(artist) }
+    })
+
+    @Test
+    fun withPlaylistQuery_itemsMatchingAnyFieldShouldBeKept() = runBlocking {
+        val dataset = createPlaylist("So What" to "Miles Davis", "Naima" to "John Coltrane")
+        val delegate = PlaylistFilterDelegate(dataset)
+        delegate.filter("DAVIS")
+        assertEquals(listOf("So What"), dataset.value!!.map { it.title })
+        delegate.filter("naima")
+        assertEquals(listOf("Naima"), dataset.value!!.map { it.title })
+        // Album and genre of the stub media
+        delegate.filter("jazz")
+        assertEquals(listOf("So What", "Naima"), dataset.value!!.map { it.title })
+    }
+
+    @Test
+    fun withShortPlaylistQuery_itemsShouldStillBeFiltered() = runBlocking {
+        val dataset = createPlaylist("So What" to "Miles Davis", "Naima" to "John Coltrane")
+        PlaylistFilterDelegate(dataset).filter("oh")
+        assertEquals(listOf("Naima"), dataset.value!!.map { it.title })
+    }
+
+    @Test
+    fun withPlaylistQuerySpanningTwoFields_noItemShouldMatch() = runBlocking {
+        // The album "XYZ CD1" is followed by the genre "Jazz"
+        val dataset = createPlaylist("So What" to "Miles Davis")
+        PlaylistFilterDelegate(dataset).filter("cd1jazz")
+        assertEquals(0, dataset.value!!.size)
+    }
+
+    @Test
+    @Ignore("Benchmark building 40000 items, run it manually")
+    fun withLargeDataset_perKeystrokeLatencyShouldBeReported() = runBlocking {
+        val dataset = MutableLiveData<List<MediaLibraryItem>>(List(40000) { dataSource.createFolder("Track $it of album ${it % 500}") })
+        val source = dataset.value!!
+        val queries = listOf("alb", "albu", "album", "123", "1234", "123", "12")
+        val expected = ArrayList<List<MediaLibraryItem>>(queries.size)
+        var scanTime = 0L
+        for (query in queries) {
+            val start = System.nanoTime()
+            expected.add(source.filter { item -> query.split(" ").filter { it.length > 2 }.any { item.title.toLowerCase().contains(it) } })
+            scanTime += System.nanoTime() - start
+        }
+        val delegate = FilterDelegate(dataset)
+        var indexTime = 0L
+        queries.forEachIndexed { i, query ->
+            val start = System.nanoTime()
+            delegate.filter(query)
+            indexTime += System.nanoTime() - start
+            assertEquals(expected[i], dataset.value)
+        }
+        println("Per keystroke filtering of ${source.size} items: full scan ${scanTime / queries.size / 1000}µs, FilterDelegate ${indexTime / queries.size / 1000}µs")
+    }
+}
@@ -35,6 +35,7 @@ import org.videolan.libvlc.interfaces.IVLCVout;
 
 import java.util.ArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 @SuppressWarnings("WeakerAccess")
 public class AWindow implements IVLCVout {
@@ -205,14 +206,38 @@ public class AWindow implements IVLCVout {
     private OnNewVideoLayoutListener mOnNewVideoLayoutListener = null;
     private ArrayList<IVLCVout.Callback> mIVLCVoutCallbacks = new ArrayList<IVLCVout.Callback>();
     private final Handler mHandler = new Handler(Looper.getMainLooper());
-    /* synchronized Surfaces accessed by an other thread from JNI */
-    private final Surface[] mSurfaces;
+    /* Surfaces accessed by an other thread from JNI, read without locking */
+    private final AtomicReferenceArray<Surface> mSurfaces = new AtomicReferenceArray<>(ID_MAX);
     private long mCallbackNativeHandle = 0;
     private int mMouseAction = -1, mMouseButton = -1, mMouseX = -1, mMouseY = -1;
     private int mWindowWidth = -1, mWindowHeight = -1;
 
     private SurfaceTextureThread mSurfaceTextureThread = new SurfaceTextureThread();
 
+    /* Latest layout set by the vout, guarded by itself */
+    private final int[] mVideoLayout = new int[6];
+    private boolean mVideoLayoutPending = false;
+
+    private final Runnable mVideoLayoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            final int width, height, visibleWidth, visibleHeight, sarNum, sarDen;
+            synchronized (mVideoLayout) {
+                width = mVideoLayout[0];
+                height = mVideoLayout[1];
+                visibleWidth = mVideoLayout[2];
+                visibleHeight = mVideoLayout[3];
+                sarNum = mVideoLayout[4];
+                sarDen = mVideoLayout[5];
+                mVideoLayoutPending = false;
+            }
+            /* No need to synchronize here, mOnNewVideoLayoutListener is only set from MainThread */
+            if (mOnNewVideoLayoutListener != null)
+                mOnNewVideoLayoutListener.onNewVideoLayout(AWindow.this, width, height,
+                        visibleWidth, visibleHeight, sarNum, sarDen);
+        }
+    };
+
     /**
      * Create an AWindow
      *
@@ -225,17 +250,14 @@ public class AWindow implements IVLCVout {
         mSurfaceHelpers = new SurfaceHelper[ID_MAX];
         mSurfaceHelpers[ID_VIDEO] = null;
         mSurfaceHelpers[ID_SUBTITLES] = null;
-        mSurfaces = new Surface[ID_MAX];
-        mSurfaces[ID_VIDEO] = null;
-        mSurfaces[ID_SUBTITLES] = null;
     }
 
     private void ensureInitState() throws IllegalStateException {
         if (mSurfacesState.get() != SURFACE_STATE_INIT)
             throw new IllegalStateException("Can't set view when already attached. " +
                     "Current state: " + mSurfacesState.get() + ", " +
-                    "mSurfaces[ID_VIDEO]: " + mSurfaceHelpers[ID_VIDEO] + " / " + mSurfaces[ID_VIDEO] + ", " +
-                    "mSurfaces[ID_SUBTITLES]: " + mSurfaceHelpers[ID_SUBTITLES] + " / " + mSurfaces[ID_SUBTITLES]);
+                    "mSurfaces[ID_VIDEO]: " + mSurfaceHelpers[ID_VIDEO] + " / " + mSurfaces.get(ID_VIDEO) + ", " +
+                    "mSurfaces[ID_SUBTITLES]: " + mSurfaceHelpers[ID_SUBTITLES] + " / " + mSurfaces.get(ID_SUBTITLES));
     }
 
     private void setView(int id, SurfaceView view) {
@@ -348,7 +370,11 @@ public class AWindow implements IVLCVout {
             return;
 
         mSurfacesState.set(SURFACE_STATE_INIT);
-        mHandler.removeCallbacksAndMessages(null);
+        synchronized (mVideoLayout) {
+            mHandler.removeCallbacksAndMessages(null);
+            /* The pending layout won't run, let the next one be posted */
+            mVideoLayoutPending = false;
+        }
         synchronized (mNativeLock) {
             mOnNewVideoLayoutListener = null;
             mNativeLock.buffersGeometryAbort = true;
@@ -425,15 +451,11 @@ public class AWindow implements IVLCVout {
     }
 
     private void setNativeSurface(int id, Surface surface) {
-        synchronized (mNativeLock) {
-            mSurfaces[id] = surface;
-        }
+        mSurfaces.set(id, surface);
     }
 
     private Surface getNativeSurface(int id) {
-        synchronized (mNativeLock) {
-            return mSurfaces[id];
-        }
+        return mSurfaces.get(id);
     }
 
     private static class NativeLock {
@@ -565,15 +587,19 @@ public class AWindow implements IVLCVout {
     @SuppressWarnings("unused") /* used by JNI */
     private void setVideoLayout(final int width, final int height, final int visibleWidth,
                                 final int visibleHeight, final int sarNum, final int sarDen) {
-        mHandler.post(new Runnable() {
-            @Override
-            public void run() {
-                /* No need to synchronize here, mOnNewVideoLayoutListener is only set from MainThread */
-                if (mOnNewVideoLayoutListener != null)
-                    mOnNewVideoLayoutListener.onNewVideoLayout(AWindow.this, width, height,
-                            visibleWidth, visibleHeight, sarNum, sarDen);
-            }
-        });
+        synchronized (mVideoLayout) {
+            mVideoLayout[0] = width;
+            mVideoLayout[1] = height;
+            mVideoLayout[2] = visibleWidth;
+            mVideoLayout[3] = visibleHeight;
+            mVideoLayout[4] = sarNum;
+            mVideoLayout[5] = sarDen;
+            /* A layout is already waiting for the main thread, it will use the latest values */
+            if (mVideoLayoutPending)
+                return;
+            mVideoLayoutPending = true;
+        }
+        mHandler.post(mVideoLayoutRunnable);
     }
 
     @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
@@ -32,6 +32,8 @@ class VideoHelper implements IVLCVout.OnNewVideoLayoutListener {
     private int mVideoVisibleWidth = 0;
     private int mVideoSarNum = 0;
     private int mVideoSarDen = 0;
+    /* Whether the video layout above was received since the views were attached */
+    private boolean mVideoLayoutSet = false;
 
     private FrameLayout mVideoSurfaceFrame;
     private SurfaceView mVideoSurface = null;
@@ -94,6 +96,7 @@ class VideoHelper implements IVLCVout.OnNewVideoLayoutListener {
         } else if (mVideoTexture != null)
             vlcVout.setVideoView(mVideoTexture);
         else return;
+        mVideoLayoutSet = false;
         vlcVout.attachViews(this);
 
         if (mOnLayoutChangeListener == null) {
@@ -240,20 +243,24 @@ class VideoHelper implements IVLCVout.OnNewVideoLayoutListener {
         ViewGroup.LayoutParams lp = videoView.getLayoutParams();
         if (mVideoWidth * mVideoHeight == 0 || (AndroidUtil.isNougatOrLater && activity != null && activity.isInPictureInPictureMode())) {
             /* Case of OpenGL vouts: handles the placement of the video using MediaPlayer API */
-            lp.width  = ViewGroup.LayoutParams.MATCH_PARENT;
-            lp.height = ViewGroup.LayoutParams.MATCH_PARENT;
-            videoView.setLayoutParams(lp);
-            if (mSubtitlesSurface != null)
-                mSubtitlesSurface.setLayoutParams(lp);
+            if (!isMatchParent(lp)) {
+                lp.width  = ViewGroup.LayoutParams.MATCH_PARENT;
+                lp.height = ViewGroup.LayoutParams.MATCH_PARENT;
+                videoView.setLayoutParams(lp);
+                if (mSubtitlesSurface != null)
+                    mSubtitlesSurface.setLayoutParams(lp);
+            }
             lp = mVideoSurfaceFrame.getLayoutParams();
-            lp.width  = ViewGroup.LayoutParams.MATCH_PARENT;
-            lp.height = ViewGroup.LayoutParams.MATCH_PARENT;
-            mVideoSurfaceFrame.setLayoutParams(lp);
+            if (!isMatchParent(lp)) {
+                lp.width  = ViewGroup.LayoutParams.MATCH_PARENT;
+                lp.height = ViewGroup.LayoutParams.MATCH_PARENT;
+                mVideoSurfaceFrame.setLayoutParams(lp);
+            }
             if (mVideoWidth * mVideoHeight == 0) changeMediaPlayerLayout(sw, sh);
             return;
         }
 
-        if (lp.width == lp.height && lp.width == ViewGroup.LayoutParams.MATCH_PARENT) {
+        if (isMatchParent(lp)) {
             /* We handle the placement of the video using Android View LayoutParams */
             mMediaPlayer.setAspectRatio(null);
             mMediaPlayer.setScale(0);
@@ -311,8 +318,12 @@ class VideoHelper implements IVLCVout.OnNewVideoLayoutListener {
         }
 
         // set display size
-        lp.width  = (int) Math.ceil(dw * mVideoWidth / mVideoVisibleWidth);
-        lp.height = (int) Math.ceil(dh * mVideoHeight / mVideoVisibleHeight);
+        final int width = (int) Math.ceil(dw * mVideoWidth / mVideoVisibleWidth);
+        final int height = (int) Math.ceil(dh * mVideoHeight / mVideoVisibleHeight);
+        /* Same geometry: no need for a new layout pass */
+        if (lp.width == width && lp.height == height) return;
+        lp.width  = width;
+        lp.height = height;
         videoView.setLayoutParams(lp);
         if (mSubtitlesSurface != null) mSubtitlesSurface.setLayoutParams(lp);
 
@@ -321,9 +332,18 @@ class VideoHelper implements IVLCVout.OnNewVideoLayoutListener {
 
     }
 
+    private static boolean isMatchParent(ViewGroup.LayoutParams lp) {
+        return lp.width == lp.height && lp.width == ViewGroup.LayoutParams.MATCH_PARENT;
+    }
+
     @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
     @Override
     public void onNewVideoLayout(IVLCVout vlcVout, int width, int height, int visibleWidth, int visibleHeight, int sarNum, int sarDen) {
+        /* Frame size changes are handled by the layout listener, nothing to do if the video layout is the same */
+        if (mVideoLayoutSet && mVideoWidth == width && mVideoHeight == height && mVideoVisibleWidth == visibleWidth
+                && mVideoVisibleHeight == visibleHeight && mVideoSarNum == sarNum && mVideoSarDen == sarDen)
+            return;
+        mVideoLayoutSet = true;
         mVideoWidth = width;
         mVideoHeight = height;
         mVideoVisibleWidth = visibleWidth;